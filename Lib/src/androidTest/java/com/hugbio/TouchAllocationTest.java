@@ -0,0 +1,52 @@
+package com.hugbio;
+
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 在真机上检查MOVE事件经过控件、NormalHeaderView和OnRefreshListener时没有分配，控件和手势与JVM上的
+ * OffsetAllocationTest共用{@link PullFixture}。纯Java部分由core模块的PullGestureAllocationTest检查
+ */
+@RunWith(AndroidJUnit4.class)
+public class TouchAllocationTest {
+
+    private static final int WARM_UP_ROUNDS = 2000;
+    private static final int MEASURED_ROUNDS = 1000;
+
+    @Test
+    public void touchMoveDoesNotAllocate() {
+        final int[] allocated = new int[1];
+        final boolean[] crossedTrigger = new boolean[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final PullFixture fixture = new PullFixture(InstrumentationRegistry.getTargetContext(),
+                        PLSwipeRefreshLayout.OFFSET_MODE_LAYOUT);
+                fixture.down();
+                for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+                    fixture.move(i);
+                }
+
+                Debug.startAllocCounting();
+                Debug.resetThreadAllocCount();
+                for (int i = 0; i < MEASURED_ROUNDS; i++) {
+                    fixture.move(i);
+                }
+                allocated[0] = Debug.getThreadAllocCount();
+                Debug.stopAllocCounting();
+
+                fixture.recycle();
+                crossedTrigger[0] = fixture.crossedTrigger();
+            }
+        });
+        assertTrue("Gesture never crossed the trigger distance", crossedTrigger[0]);
+        assertEquals("Objects allocated by " + MEASURED_ROUNDS + " MOVE events", 0, allocated[0]);
+    }
+}
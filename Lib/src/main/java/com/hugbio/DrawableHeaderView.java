@@ -0,0 +1,83 @@
+package com.hugbio;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.Arrays;
+
+/**
+ * 只有一个View的头部，背景、箭头和进度圈都由RefreshHeaderDrawable绘制。
+ * 状态和位置的表现与NormalHeaderView一致，但不需要inflate，也没有子控件的measure、layout和重叠绘制。
+ * 颜色相同的实例可以通过HeaderViewPool复用，子类需要重写getPoolKey和newHeader
+ */
+public class DrawableHeaderView implements PLHeaderView, HeaderViewPool.Recyclable {
+
+    private static final int HEADER_HEIGHT = 105;  //dp，与refreshview.xml一致
+    private static final int DEFAULT_BACKGROUND_COLOR = 0xFFEEEEEE;
+    private static final int DEFAULT_INDICATOR_COLOR = 0xFF999999;
+
+    private final int mBackgroundColor;
+    private final int mIndicatorColor;
+    private RefreshHeaderDrawable mDrawable;
+
+    public DrawableHeaderView() {
+        this(DEFAULT_BACKGROUND_COLOR, DEFAULT_INDICATOR_COLOR);
+    }
+
+    /**
+     * @param backgroundColor 背景颜色
+     * @param indicatorColor  箭头和进度圈的颜色
+     */
+    public DrawableHeaderView(int backgroundColor, int indicatorColor) {
+        mBackgroundColor = backgroundColor;
+        mIndicatorColor = indicatorColor;
+    }
+
+    @Override
+    public Object getPoolKey() {
+        return Arrays.asList(DrawableHeaderView.class, mBackgroundColor, mIndicatorColor);
+    }
+
+    @Override
+    public PLHeaderView newHeader() {
+        return new DrawableHeaderView(mBackgroundColor, mIndicatorColor);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public View createHeaderView(Context context, ViewGroup viewGroup) {
+        final float density = context.getResources().getDisplayMetrics().density;
+        mDrawable = new RefreshHeaderDrawable(density, mBackgroundColor, mIndicatorColor);
+        View headerView = new View(context);
+        headerView.setBackgroundDrawable(mDrawable);
+        headerView.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                (int) (HEADER_HEIGHT * density + .5f)));
+        return headerView;
+    }
+
+    @Override
+    public int getStartPosition(int headHeight) {
+        return 0;
+    }
+
+    @Override
+    public int getDistanceToTriggerSync(int headHeight) {
+        return headHeight;
+    }
+
+    @Override
+    public void statusChange(PLSwipeRefreshLayout.STATUS status) {
+        mDrawable.setStatus(status);
+    }
+
+    @Override
+    public void offsetChange(int mCurrentTargetOffsetTop, int mLastTargetOffsetTop) {
+        mDrawable.setOffset(mCurrentTargetOffsetTop);
+    }
+
+    @Override
+    public void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        // 位置由Drawable根据bounds和偏移量计算
+    }
+}
@@ -0,0 +1,400 @@
+package com.hugbio;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.BitmapRegionDecoder;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.view.ViewCompat;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 播放帧动画的头部。下拉时根据下拉进度选择帧，刷新中按时间循环播放刷新帧。
+ * 所有帧在创建头部后由后台线程提前解码到{@link HeaderFrameCache}中，绘制时只从缓存读取，
+ * 帧被淘汰或者还没有解码完成时继续显示上一帧，并在后台重新解码。
+ * 所有帧超出缓存大小时不再整体解码，缺帧时只解码当前需要的那一帧
+ */
+public class FrameSequenceHeaderView implements PLHeaderView {
+
+    private final int[] mFrameResIds;  //逐帧图片，使用精灵图时为null
+    private final int mSpriteResId;
+    private final int mSpriteColumns;
+    private final int mFrameCount;
+    private final int mPullFrameCount;
+    private final int mFrameDuration;
+    private HeaderFrameCache mCache;
+
+    private Resources mResources;
+    private String[] mFrameKeys;
+    private final AtomicBoolean mDecoding = new AtomicBoolean();
+    private volatile boolean mOverflow;  //所有帧放不进缓存，整体解码会互相淘汰
+    private volatile int mDecodeFrame = -1;  //只解码这一帧，-1表示解码所有缺少的帧
+    private int mRequestedFrame = -1;  //绘制时已经请求过解码的帧，状态或位置变化后清除，避免反复解码同一帧
+    private FrameView mFrameView;
+    private PLSwipeRefreshLayout.STATUS mStatus = PLSwipeRefreshLayout.STATUS.NORMAL;
+    private int mOffset;
+    private long mRefreshStartTime;
+
+    private final Runnable mDecodeFrames = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                final int frame = mDecodeFrame;
+                if (frame >= 0) {
+                    decodeFrame(frame);
+                } else {
+                    decodeMissingFrames();
+                }
+            } finally {
+                mDecoding.set(false);
+            }
+            final View view = mFrameView;
+            if (view != null) {
+                view.postInvalidate();  //解码完成，显示新的帧
+            }
+        }
+    };
+
+    /**
+     * 使用逐帧图片
+     *
+     * @param frameResIds    所有帧的图片资源
+     * @param pullFrameCount 前pullFrameCount帧用于下拉过程，其余的帧在刷新中循环播放（没有其余的帧时循环播放所有帧）
+     * @param frameDuration  刷新中每帧的时间（毫秒）
+     */
+    public FrameSequenceHeaderView(int[] frameResIds, int pullFrameCount, int frameDuration) {
+        this(frameResIds, 0, 0, frameResIds.length, pullFrameCount, frameDuration);
+    }
+
+    /**
+     * 使用精灵图，帧按从左到右、从上到下的顺序排列
+     *
+     * @param spriteResId    精灵图资源
+     * @param frameCount     帧数
+     * @param columns        每行的帧数
+     * @param pullFrameCount 前pullFrameCount帧用于下拉过程，其余的帧在刷新中循环播放（没有其余的帧时循环播放所有帧）
+     * @param frameDuration  刷新中每帧的时间（毫秒）
+     */
+    public FrameSequenceHeaderView(int spriteResId, int frameCount, int columns, int pullFrameCount, int frameDuration) {
+        this(null, spriteResId, columns, frameCount, pullFrameCount, frameDuration);
+    }
+
+    private FrameSequenceHeaderView(int[] frameResIds, int spriteResId, int columns, int frameCount,
+                                    int pullFrameCount, int frameDuration) {
+        if (frameCount <= 0) {
+            throw new IllegalArgumentException("frameCount must be positive");
+        }
+        mFrameResIds = frameResIds;
+        mSpriteResId = spriteResId;
+        mSpriteColumns = columns;
+        mFrameCount = frameCount;
+        mPullFrameCount = Math.max(1, Math.min(pullFrameCount, frameCount));
+        mFrameDuration = Math.max(1, frameDuration);
+    }
+
+    /**
+     * 设置帧缓存，需要在创建头部之前调用。默认使用{@link HeaderFrameCache#getDefault()}
+     */
+    public void setFrameCache(HeaderFrameCache cache) {
+        mCache = cache;
+    }
+
+    @Override
+    public View createHeaderView(Context context, ViewGroup viewGroup) {
+        mResources = context.getResources();
+        if (mCache == null) {
+            mCache = HeaderFrameCache.getDefault();
+        }
+        final String density = "@" + mResources.getDisplayMetrics().densityDpi;
+        mFrameKeys = new String[mFrameCount];
+        for (int i = 0; i < mFrameCount; i++) {
+            mFrameKeys[i] = mFrameResIds != null
+                    ? "frame:" + mFrameResIds[i] + density
+                    : "sprite:" + mSpriteResId + ":" + i + density;
+        }
+        // 第一帧同步解码，用来确定头部的尺寸，其余的帧在后台解码
+        Bitmap first = mCache.get(mFrameKeys[0]);
+        if (first == null) {
+            if (mFrameResIds != null) {
+                first = decodeResource(mFrameResIds[0]);
+                if (first != null) {
+                    mCache.put(mFrameKeys[0], first);
+                }
+            } else {
+                decodeSpriteFrame(0);  //只切出第一帧，其余的帧在后台切出
+                first = mCache.get(mFrameKeys[0]);
+            }
+        }
+        mFrameView = new FrameView(context, this, first);
+        mFrameView.setLayoutParams(new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                first != null ? first.getHeight() : 0));
+        requestDecode(-1);
+        return mFrameView;
+    }
+
+    @Override
+    public int getStartPosition(int headHeight) {
+        return 0;
+    }
+
+    @Override
+    public int getDistanceToTriggerSync(int headHeight) {
+        return headHeight;
+    }
+
+    @Override
+    public void statusChange(PLSwipeRefreshLayout.STATUS status) {
+        if (status == PLSwipeRefreshLayout.STATUS.REFRESHING && mStatus != status) {
+            mRefreshStartTime = SystemClock.uptimeMillis();
+        }
+        mStatus = status;
+        mRequestedFrame = -1;
+        mFrameView.invalidate();
+    }
+
+    @Override
+    public void offsetChange(int mCurrentTargetOffsetTop, int mLastTargetOffsetTop) {
+        mOffset = mCurrentTargetOffsetTop;
+        mRequestedFrame = -1;
+        mFrameView.invalidate();
+    }
+
+    @Override
+    public void onLayout(boolean changed, int left, int top, int right, int bottom) {
+    }
+
+    /**
+     * @return 当前应该显示的帧
+     */
+    private int currentFrame(int height) {
+        if (mStatus == PLSwipeRefreshLayout.STATUS.REFRESHING) {
+            final int refreshFrames = mFrameCount - mPullFrameCount;
+            final long frame = (SystemClock.uptimeMillis() - mRefreshStartTime) / mFrameDuration;
+            return refreshFrames > 0
+                    ? mPullFrameCount + (int) (frame % refreshFrames)
+                    : (int) (frame % mFrameCount);
+        }
+        if (height <= 0 || mOffset <= 0) {
+            return 0;
+        }
+        return Math.min(mOffset * mPullFrameCount / height, mPullFrameCount - 1);
+    }
+
+    /**
+     * 绘制时缺少帧。所有帧放得进缓存时补齐所有缺少的帧，否则只解码这一帧；同一帧在状态或位置变化之前只请求一次
+     */
+    private void onFrameMissing(int frame) {
+        if (frame != mRequestedFrame && requestDecode(mOverflow ? frame : -1)) {
+            mRequestedFrame = frame;
+        }
+    }
+
+    /**
+     * 在后台解码，同一时间只有一个解码任务
+     *
+     * @param frame 只解码这一帧，-1表示解码所有缺少的帧
+     * @return 是否开始了解码，已经有解码任务时返回false
+     */
+    private boolean requestDecode(int frame) {
+        if (!mDecoding.compareAndSet(false, true)) {
+            return false;
+        }
+        mDecodeFrame = frame;
+        HeaderFrameCache.getDecodeExecutor().execute(mDecodeFrames);
+        return true;
+    }
+
+    private void decodeMissingFrames() {
+        if (mFrameResIds == null) {
+            for (String key : mFrameKeys) {
+                if (mCache.get(key) == null) {
+                    decodeSprite(-1);  //精灵图一次解码出所有帧
+                    return;
+                }
+            }
+            return;
+        }
+        long bytes = 0;
+        for (int i = 0; i < mFrameCount; i++) {
+            Bitmap frame = mCache.get(mFrameKeys[i]);
+            if (frame == null) {
+                frame = decodeResource(mFrameResIds[i]);
+                if (frame != null) {
+                    mCache.put(mFrameKeys[i], frame);
+                }
+            }
+            if (frame != null) {
+                bytes += frame.getRowBytes() * frame.getHeight();
+                if (bytes > mCache.maxSize()) {
+                    mOverflow = true;  //后面的帧会淘汰前面的，不再继续，之后缺帧时逐帧解码
+                    return;
+                }
+            }
+        }
+    }
+
+    private void decodeFrame(int index) {
+        if (mCache.get(mFrameKeys[index]) != null) {
+            return;
+        }
+        if (mFrameResIds == null) {
+            decodeSpriteFrame(index);
+            return;
+        }
+        final Bitmap frame = decodeResource(mFrameResIds[index]);
+        if (frame != null) {
+            mCache.put(mFrameKeys[index], frame);
+        }
+    }
+
+    private Bitmap decodeResource(int resId) {
+        try {
+            return BitmapFactory.decodeResource(mResources, resId);
+        } catch (OutOfMemoryError e) {
+            mCache.trimToSize(mCache.size() / 2);  //缓存让出一半空间，下次缺帧时再解码
+            return null;
+        }
+    }
+
+    /**
+     * 只解码精灵图中的一帧。2.3.3以上用BitmapRegionDecoder只解码这一帧的区域，不需要解码整张精灵图
+     */
+    private void decodeSpriteFrame(int index) {
+        final Bitmap frame = Build.VERSION.SDK_INT >= 10 ? decodeSpriteRegion(index) : null;
+        if (frame != null) {
+            mCache.put(mFrameKeys[index], frame);
+        } else {
+            decodeSprite(index);  //不支持区域解码（例如格式不支持）时解码整张精灵图
+        }
+    }
+
+    @TargetApi(10)
+    private Bitmap decodeSpriteRegion(int index) {
+        final TypedValue value = new TypedValue();
+        InputStream in = null;
+        try {
+            in = mResources.openRawResource(mSpriteResId, value);
+            final BitmapRegionDecoder decoder = BitmapRegionDecoder.newInstance(in, false);
+            try {
+                final int columns = Math.max(1, mSpriteColumns);
+                final int rows = (mFrameCount + columns - 1) / columns;
+                final int frameWidth = decoder.getWidth() / columns;
+                final int frameHeight = decoder.getHeight() / rows;
+                final int left = (index % columns) * frameWidth;
+                final int top = (index / columns) * frameHeight;
+                final Bitmap region = decoder.decodeRegion(new Rect(left, top, left + frameWidth, top + frameHeight), null);
+                // 区域解码不会按屏幕密度缩放，按decodeResource的方式缩放，和整张解码切出的帧尺寸一致
+                final float scale = densityScale(value);
+                if (region == null || scale == 1f) {
+                    return region;
+                }
+                final Bitmap scaled = Bitmap.createScaledBitmap(region,
+                        (int) (decoder.getWidth() * scale + .5f) / columns,
+                        (int) (decoder.getHeight() * scale + .5f) / rows, true);
+                if (scaled != region) {
+                    region.recycle();
+                }
+                return scaled;
+            } finally {
+                decoder.recycle();
+            }
+        } catch (IOException e) {
+            return null;
+        } catch (OutOfMemoryError e) {
+            mCache.trimToSize(mCache.size() / 2);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * @return decodeResource对这个资源使用的缩放比例
+     */
+    private float densityScale(TypedValue value) {
+        if (value.density == TypedValue.DENSITY_NONE) {
+            return 1f;
+        }
+        final int density = value.density == TypedValue.DENSITY_DEFAULT ? DisplayMetrics.DENSITY_DEFAULT : value.density;
+        return (float) mResources.getDisplayMetrics().densityDpi / density;
+    }
+
+    /**
+     * @param index 只切出这一帧，-1表示切出所有缺少的帧
+     */
+    private void decodeSprite(int index) {
+        final Bitmap sprite = decodeResource(mSpriteResId);
+        if (sprite == null) {
+            return;
+        }
+        final int columns = Math.max(1, mSpriteColumns);
+        final int rows = (mFrameCount + columns - 1) / columns;
+        final int frameWidth = sprite.getWidth() / columns;
+        final int frameHeight = sprite.getHeight() / rows;
+        if (index < 0 && (long) sprite.getRowBytes() / columns * frameHeight * mFrameCount > mCache.maxSize()) {
+            mOverflow = true;  //所有帧放不进缓存，只切出第一帧，之后缺帧时逐帧切出
+            index = 0;
+        }
+        for (int i = 0; i < mFrameCount; i++) {
+            if ((index < 0 || i == index) && mCache.get(mFrameKeys[i]) == null) {
+                mCache.put(mFrameKeys[i], Bitmap.createBitmap(sprite,
+                        (i % columns) * frameWidth, (i / columns) * frameHeight, frameWidth, frameHeight));
+            }
+        }
+    }
+
+    /**
+     * 帧的底部跟随内容控件的顶部，刷新中固定在头部顶部
+     */
+    private static final class FrameView extends View {
+        private final FrameSequenceHeaderView mHeader;
+        private Bitmap mLastFrame;
+
+        FrameView(Context context, FrameSequenceHeaderView header, Bitmap first) {
+            super(context);
+            mHeader = header;
+            mLastFrame = first;
+        }
+
+        @Override
+        protected void onDraw(Canvas canvas) {
+            final boolean refreshing = mHeader.mStatus == PLSwipeRefreshLayout.STATUS.REFRESHING;
+            if (mHeader.mOffset <= 0 && !refreshing) {
+                return;
+            }
+            final int height = getHeight();
+            final int index = mHeader.currentFrame(height);
+            Bitmap frame = mHeader.mCache.get(mHeader.mFrameKeys[index]);
+            if (frame == null) {
+                mHeader.onFrameMissing(index);  //被淘汰了，继续显示上一帧
+                frame = mLastFrame;
+            } else {
+                mLastFrame = frame;
+            }
+            if (frame != null) {
+                final int top = refreshing ? 0 : mHeader.mOffset - height;
+                canvas.drawBitmap(frame, (getWidth() - frame.getWidth()) / 2, top, null);
+            }
+            if (refreshing) {
+                ViewCompat.postInvalidateOnAnimation(this);
+            }
+        }
+    }
+}
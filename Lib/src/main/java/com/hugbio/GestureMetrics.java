@@ -0,0 +1,155 @@
+package com.hugbio;
+
+/**
+ * 一次下拉（上拉）手势的性能数据，从开始拖动统计到控件回到静止状态。
+ * 同一个对象会被重复使用，需要保存时请在回调中复制需要的值
+ */
+public final class GestureMetrics {
+
+    int moveEvents;
+    int offsetUpdates;
+    int headerOffsetChanges;
+    int measurePasses;
+    int layoutPasses;
+    int dragFrames;
+    int dragDroppedFrames;
+    int animationFrames;
+    int animationDroppedFrames;
+    long releaseTime;  //System.nanoTime时间基准
+    long releaseToRefreshNanos = -1;
+    long releaseToLoadNanos = -1;
+    long stopTime;
+    long stopToSettleNanos = -1;
+    boolean refreshed;
+    boolean loaded;
+
+    void reset() {
+        moveEvents = 0;
+        offsetUpdates = 0;
+        headerOffsetChanges = 0;
+        measurePasses = 0;
+        layoutPasses = 0;
+        dragFrames = 0;
+        dragDroppedFrames = 0;
+        animationFrames = 0;
+        animationDroppedFrames = 0;
+        releaseTime = 0;
+        releaseToRefreshNanos = -1;
+        releaseToLoadNanos = -1;
+        stopTime = 0;
+        stopToSettleNanos = -1;
+        refreshed = false;
+        loaded = false;
+    }
+
+    /**
+     * @return 处理的MOVE事件数（包括嵌套滑动的回调）
+     */
+    public int getMoveEvents() {
+        return moveEvents;
+    }
+
+    /**
+     * @return setTargetOffsetTopAndBottom的调用次数
+     */
+    public int getOffsetUpdates() {
+        return offsetUpdates;
+    }
+
+    /**
+     * @return PLHeaderView.offsetChange的调用次数
+     */
+    public int getHeaderOffsetChanges() {
+        return headerOffsetChanges;
+    }
+
+    public int getMeasurePasses() {
+        return measurePasses;
+    }
+
+    public int getLayoutPasses() {
+        return layoutPasses;
+    }
+
+    /**
+     * @return 拖动过程中的帧数
+     */
+    public int getDragFrames() {
+        return dragFrames;
+    }
+
+    /**
+     * @return 拖动过程中的掉帧数
+     */
+    public int getDragDroppedFrames() {
+        return dragDroppedFrames;
+    }
+
+    /**
+     * @return 返回动画的帧数
+     */
+    public int getAnimationFrames() {
+        return animationFrames;
+    }
+
+    /**
+     * @return 返回动画的掉帧数
+     */
+    public int getAnimationDroppedFrames() {
+        return animationDroppedFrames;
+    }
+
+    /**
+     * @return 这次手势是否触发了刷新
+     */
+    public boolean isRefreshed() {
+        return refreshed;
+    }
+
+    /**
+     * @return 这次手势是否触发了加载
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return 从松开手指（ACTION_UP的事件时间）到调用OnRefreshListener.onRefresh的时间（纳秒），没有触发刷新时为-1
+     */
+    public long getReleaseToRefreshNanos() {
+        return releaseToRefreshNanos;
+    }
+
+    /**
+     * @return 从松开手指（ACTION_UP的事件时间）到调用OnLoadListener.onLoad的时间（纳秒），没有触发加载时为-1
+     */
+    public long getReleaseToLoadNanos() {
+        return releaseToLoadNanos;
+    }
+
+    /**
+     * @return 从stopRefresh到控件静止的时间（纳秒），没有触发刷新时为-1
+     */
+    public long getStopToSettleNanos() {
+        return stopToSettleNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "GestureMetrics{moveEvents=" + moveEvents
+                + ", offsetUpdates=" + offsetUpdates
+                + ", headerOffsetChanges=" + headerOffsetChanges
+                + ", measurePasses=" + measurePasses
+                + ", layoutPasses=" + layoutPasses
+                + ", dragFrames=" + dragFrames
+                + ", dragDroppedFrames=" + dragDroppedFrames
+                + ", animationFrames=" + animationFrames
+                + ", animationDroppedFrames=" + animationDroppedFrames
+                + ", refreshed=" + refreshed
+                + ", loaded=" + loaded
+                + ", releaseToRefreshNanos=" + releaseToRefreshNanos
+                + ", releaseToLoadNanos=" + releaseToLoadNanos
+                + ", stopToSettleNanos=" + stopToSettleNanos
+                + '}';
+    }
+}
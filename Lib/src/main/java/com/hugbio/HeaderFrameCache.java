@@ -0,0 +1,99 @@
+package com.hugbio;
+
+import android.graphics.Bitmap;
+import android.os.Process;
+import android.support.v4.util.LruCache;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 头部动画帧的缓存，按字节数限制大小，超出时淘汰最久没有使用的帧。
+ * 可以在多个PLSwipeRefreshLayout之间共享，线程安全。被淘汰的Bitmap不会被recycle，可能仍在显示
+ */
+public final class HeaderFrameCache {
+
+    private static final int DEFAULT_MEMORY_FRACTION = 16;  //默认占最大内存的1/16
+
+    private static HeaderFrameCache sDefault;
+    private static Executor sDecodeExecutor;
+
+    private final LruCache<String, Bitmap> mFrames;
+
+    /**
+     * @param maxBytes 缓存的帧最多占用的字节数
+     */
+    public HeaderFrameCache(int maxBytes) {
+        mFrames = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getRowBytes() * value.getHeight();
+            }
+        };
+    }
+
+    /**
+     * @return 全局共享的缓存
+     */
+    public static synchronized HeaderFrameCache getDefault() {
+        if (sDefault == null) {
+            sDefault = new HeaderFrameCache((int) Math.min(Runtime.getRuntime().maxMemory() / DEFAULT_MEMORY_FRACTION,
+                    Integer.MAX_VALUE));
+        }
+        return sDefault;
+    }
+
+    public Bitmap get(String key) {
+        return mFrames.get(key);
+    }
+
+    public void put(String key, Bitmap frame) {
+        mFrames.put(key, frame);
+    }
+
+    /**
+     * @return 当前占用的字节数
+     */
+    public int size() {
+        return mFrames.size();
+    }
+
+    public int maxSize() {
+        return mFrames.maxSize();
+    }
+
+    /**
+     * 内存紧张时（例如onTrimMemory）缩小到指定字节数
+     */
+    public void trimToSize(int maxBytes) {
+        mFrames.trimToSize(maxBytes);
+    }
+
+    public void evictAll() {
+        mFrames.evictAll();
+    }
+
+    /**
+     * @return 解码帧用的后台线程，所有缓存共用
+     */
+    static synchronized Executor getDecodeExecutor() {
+        if (sDecodeExecutor == null) {
+            sDecodeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "PLSwipeRefreshLayout-frames");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sDecodeExecutor;
+    }
+}
@@ -0,0 +1,147 @@
+package com.hugbio;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * 多个PLSwipeRefreshLayout共享的头部缓存池。控件detach时把头部还回来，attach后优先从这里取，
+ * 避免ViewPager中每个页面都重新inflate一遍。
+ * 只有实现了{@link Recyclable}的头部才会放入缓存池，按{@link Recyclable#getPoolKey()}区分配置，
+ * 其他头部detach时保留在自己的控件中。
+ * 缓存的头部持有创建时的Context，池的生命周期不要超过这个Context（例如每个Activity一个）。只能在主线程使用
+ */
+public final class HeaderViewPool {
+
+    private static final int DEFAULT_MAX_SIZE = 3;
+
+    /**
+     * 可以在多个控件之间复用的头部
+     */
+    public interface Recyclable {
+        /**
+         * @return 配置相同（可以互相替换）的头部返回相等的key，需要实现equals和hashCode
+         */
+        Object getPoolKey();
+
+        /**
+         * @return 配置相同的新实例，缓存池中的头部被其他控件取走后用来重新创建
+         */
+        PLHeaderView newHeader();
+    }
+
+    private final HashMap<Object, ArrayList<Holder>> mScrap = new HashMap<Object, ArrayList<Holder>>();
+    private final int mMaxSizePerType;
+
+    /**
+     * 头部及创建它的PLHeaderView，两者必须一起复用
+     */
+    static final class Holder {
+        final PLHeaderView header;
+        final View view;
+
+        Holder(PLHeaderView header, View view) {
+            this.header = header;
+            this.view = view;
+        }
+    }
+
+    public HeaderViewPool() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * @param maxSizePerType 每种配置最多缓存的头部个数
+     */
+    public HeaderViewPool(int maxSizePerType) {
+        mMaxSizePerType = maxSizePerType;
+    }
+
+    /**
+     * 预先创建头部放入缓存池，可以在空闲时调用
+     *
+     * @param context   头部使用的Context
+     * @param parent    用来生成LayoutParams的父控件
+     * @param prototype 头部的配置，只用来创建新实例
+     * @param count     缓存池中至少需要有的个数，不会超过最大缓存个数
+     */
+    public void prewarm(Context context, ViewGroup parent, Recyclable prototype, int count) {
+        final ArrayList<Holder> scrap = getScrap(prototype.getPoolKey());
+        count = Math.min(count, mMaxSizePerType);
+        while (scrap.size() < count) {
+            final PLHeaderView header = prototype.newHeader();
+            final View view = header.createHeaderView(context, parent);
+            if (view == null) {
+                return;
+            }
+            scrap.add(new Holder(header, view));
+        }
+    }
+
+    /**
+     * 清空缓存池
+     */
+    public void clear() {
+        mScrap.clear();
+    }
+
+    /**
+     * @return 可以用来代替header的缓存头部：优先返回由header本身创建的，其次是配置相同的（只对Recyclable），没有时返回null
+     */
+    Holder acquire(PLHeaderView header) {
+        final Holder holder = acquireCreatedBy(header);
+        if (holder != null || !(header instanceof Recyclable)) {
+            return holder;
+        }
+        final ArrayList<Holder> scrap = mScrap.get(keyOf(header));
+        return scrap == null || scrap.isEmpty() ? null : scrap.remove(scrap.size() - 1);
+    }
+
+    /**
+     * @return 由header本身创建的缓存头部，没有时返回null
+     */
+    Holder acquireCreatedBy(PLHeaderView header) {
+        final ArrayList<Holder> scrap = mScrap.get(keyOf(header));
+        if (scrap == null) {
+            return null;
+        }
+        for (int i = scrap.size() - 1; i >= 0; i--) {
+            if (scrap.get(i).header == header) {
+                return scrap.remove(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 还回头部，缓存池已满时丢弃
+     */
+    void release(PLHeaderView header, View view) {
+        if (view.getParent() != null) {
+            throw new IllegalStateException("Header view must be removed from its parent before release");
+        }
+        final ArrayList<Holder> scrap = getScrap(keyOf(header));
+        if (scrap.size() < mMaxSizePerType) {
+            scrap.add(new Holder(header, view));
+        }
+    }
+
+    /**
+     * 不能按配置复用的头部只能按实例缓存
+     */
+    private static Object keyOf(PLHeaderView header) {
+        return header instanceof Recyclable ? ((Recyclable) header).getPoolKey() : header;
+    }
+
+    private ArrayList<Holder> getScrap(Object key) {
+        ArrayList<Holder> scrap = mScrap.get(key);
+        if (scrap == null) {
+            scrap = new ArrayList<Holder>(mMaxSizePerType);
+            mScrap.put(key, scrap);
+        }
+        return scrap;
+    }
+}
@@ -0,0 +1,59 @@
+package com.hugbio;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 由布局文件创建的头部，对应XML属性plHeaderLayout。布局的根控件实现了PLHeaderView时，回调都交给它处理
+ * （它的createHeaderView不会被调用）；否则只显示布局，初始位置为0，触发距离为头部高度。
+ * 不能按类型重新创建，不会放入HeaderViewPool：detach时保留在自己的控件中，替换下来时也只缓存在本控件
+ */
+public class LayoutHeaderView implements PLHeaderView {
+
+    private final int mLayoutResId;
+    private PLHeaderView mDelegate;
+
+    public LayoutHeaderView(int layoutResId) {
+        mLayoutResId = layoutResId;
+    }
+
+    @Override
+    public View createHeaderView(Context context, ViewGroup viewGroup) {
+        final View view = LayoutInflater.from(context).inflate(mLayoutResId, viewGroup, false);
+        mDelegate = view instanceof PLHeaderView ? (PLHeaderView) view : null;
+        return view;
+    }
+
+    @Override
+    public int getStartPosition(int headHeight) {
+        return mDelegate != null ? mDelegate.getStartPosition(headHeight) : 0;
+    }
+
+    @Override
+    public int getDistanceToTriggerSync(int headHeight) {
+        return mDelegate != null ? mDelegate.getDistanceToTriggerSync(headHeight) : headHeight;
+    }
+
+    @Override
+    public void statusChange(PLSwipeRefreshLayout.STATUS status) {
+        if (mDelegate != null) {
+            mDelegate.statusChange(status);
+        }
+    }
+
+    @Override
+    public void offsetChange(int mCurrentTargetOffsetTop, int mLastTargetOffsetTop) {
+        if (mDelegate != null) {
+            mDelegate.offsetChange(mCurrentTargetOffsetTop, mLastTargetOffsetTop);
+        }
+    }
+
+    @Override
+    public void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        if (mDelegate != null) {
+            mDelegate.onLayout(changed, left, top, right, bottom);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.hugbio;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+/**
+ * 默认的底部控件：进度条加提示文字
+ */
+public class NormalFooterView implements PLFooterView {
+
+    private ProgressBar mProgressBarLoad;
+    private TextView mTextViewLoad;
+
+    @Override
+    public View createFooterView(Context context, ViewGroup viewGroup) {
+        LayoutInflater layoutInflater = LayoutInflater.from(context);
+        View loadView = layoutInflater.inflate(R.layout.loadview, viewGroup, false);
+        mProgressBarLoad = (ProgressBar) loadView.findViewById(R.id.pbLoad);
+        mTextViewLoad = (TextView) loadView.findViewById(R.id.tvLoad);
+        return loadView;
+    }
+
+    @Override
+    public void statusChange(PLSwipeRefreshLayout.STATUS status) {
+        if (status == PLSwipeRefreshLayout.STATUS.LOADING) {
+            mProgressBarLoad.setVisibility(View.VISIBLE);
+            mTextViewLoad.setText(R.string.pl_footer_loading);
+        } else {
+            mProgressBarLoad.setVisibility(View.GONE);
+            mTextViewLoad.setText(status == PLSwipeRefreshLayout.STATUS.LOOSENLOAD
+                    ? R.string.pl_footer_loosen : R.string.pl_footer_pull);
+        }
+    }
+
+    @Override
+    public void offsetChange(int mCurrentTargetOffsetTop, int mLastTargetOffsetTop) {
+    }
+
+    @Override
+    public void onLayout(boolean changed, int left, int top, int right, int bottom) {
+    }
+}
@@ -15,7 +15,7 @@ import android.widget.ProgressBar;
  * 作者： huangbiao
  * 时间： 2017-03-28
  */
-public class NormalHeaderView implements PLHeaderView {
+public class NormalHeaderView implements PLHeaderView, HeaderViewPool.Recyclable {
 
     private ProgressBar mProgressBarRefresh;
     private ImageView mImageViewArrow;
@@ -42,6 +42,16 @@ public class NormalHeaderView implements PLHeaderView {
         return refreshView;
     }
 
+    @Override
+    public Object getPoolKey() {
+        return NormalHeaderView.class;
+    }
+
+    @Override
+    public PLHeaderView newHeader() {
+        return new NormalHeaderView();
+    }
+
     @Override
     public int getStartPosition(int headHeight) {
         return 0;
@@ -0,0 +1,190 @@
+package com.hugbio;
+
+import android.support.v4.view.ViewCompat;
+import android.view.View;
+import android.view.animation.AnimationUtils;
+
+/**
+ * 基于帧回调（4.1以上为Choreographer）的位置动画，用来代替View Animation驱动头部（底部）的返回动画。
+ * 按帧时间计算进度，与屏幕刷新率无关；运行过程中不分配对象，可以随时修改目标位置而不会中断当前速度。
+ */
+final class OffsetAnimator implements Runnable {
+
+    /**
+     * 减速动画，效果与DecelerateInterpolator一致，时长固定
+     */
+    public static final int MODE_DECELERATE = 0;
+    /**
+     * 弹簧动画，时长由刚度和阻尼决定，支持初始速度
+     */
+    public static final int MODE_SPRING = 1;
+
+    private static final float DEFAULT_STIFFNESS = 400f;
+    private static final float DEFAULT_DAMPING_RATIO = 1f;
+    private static final float DECELERATE_FACTOR = 2f;
+    // 弹簧积分的固定步长（秒），保证不同刷新率下的轨迹一致
+    private static final float SPRING_STEP = 1f / 240f;
+    // 单帧最大时间间隔，避免卡顿后位置跳变
+    private static final long MAX_FRAME_TIME = 64;
+    private static final float POSITION_THRESHOLD = 0.5f;
+    private static final float VELOCITY_THRESHOLD = 10f;
+
+    interface Listener {
+        /**
+         * 每帧回调一次当前位置
+         */
+        void onOffsetUpdate(OffsetAnimator animator, int offset);
+
+        /**
+         * 动画到达目标位置（没有被cancel）
+         */
+        void onOffsetAnimationEnd(OffsetAnimator animator);
+    }
+
+    private final View mView;
+    private final Listener mListener;
+
+    private int mMode = MODE_DECELERATE;
+    private long mDuration;
+    private float mStiffness = DEFAULT_STIFFNESS;
+    private float mDampingRatio = DEFAULT_DAMPING_RATIO;
+
+    private boolean mRunning;
+    private long mStartTime;
+    private long mLastFrameTime;
+    private float mFrom;
+    private float mTo;
+    private float mPosition;
+    private float mVelocity;  //像素/秒
+    private float mSpringRemainder;
+
+    OffsetAnimator(View view, Listener listener, long duration) {
+        mView = view;
+        mListener = listener;
+        mDuration = duration;
+    }
+
+    public void setMode(int mode) {
+        mMode = mode;
+    }
+
+    public int getMode() {
+        return mMode;
+    }
+
+    public void setDuration(long duration) {
+        mDuration = duration;
+    }
+
+    /**
+     * @param stiffness    刚度，越大越快
+     * @param dampingRatio 阻尼比，1为临界阻尼（不回弹），小于1会回弹
+     */
+    public void setSpring(float stiffness, float dampingRatio) {
+        mStiffness = stiffness;
+        mDampingRatio = dampingRatio;
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    public int getTarget() {
+        return (int) mTo;
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * 从from开始动画到to
+     *
+     * @param velocity 初始速度（像素/秒），只对弹簧动画有效
+     */
+    public void start(int from, int to, float velocity) {
+        mFrom = from;
+        mPosition = from;
+        mTo = to;
+        mVelocity = velocity;
+        mSpringRemainder = 0;
+        mStartTime = mLastFrameTime = AnimationUtils.currentAnimationTimeMillis();
+        if (!mRunning) {
+            mRunning = true;
+            ViewCompat.postOnAnimation(mView, this);
+        }
+    }
+
+    /**
+     * 运行中修改目标位置，保留当前的位置和速度；没有运行时什么都不做
+     */
+    public void retarget(int to) {
+        if (!mRunning) {
+            return;
+        }
+        if (mMode == MODE_DECELERATE) {
+            mFrom = mPosition;
+            mStartTime = mLastFrameTime;
+        }
+        mTo = to;
+    }
+
+    public void cancel() {
+        if (mRunning) {
+            mRunning = false;
+            mView.removeCallbacks(this);
+        }
+    }
+
+    @Override
+    public void run() {
+        if (!mRunning) {
+            return;
+        }
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        final boolean finished;
+        if (mMode == MODE_SPRING) {
+            finished = stepSpring(Math.min(now - mLastFrameTime, MAX_FRAME_TIME));
+        } else {
+            finished = stepDecelerate(now);
+        }
+        mLastFrameTime = now;
+        if (finished) {
+            mRunning = false;
+            mPosition = mTo;
+            mVelocity = 0;
+        }
+        mListener.onOffsetUpdate(this, Math.round(mPosition));
+        if (finished) {
+            mListener.onOffsetAnimationEnd(this);
+        } else if (mRunning) {
+            ViewCompat.postOnAnimation(mView, this);
+        }
+    }
+
+    private boolean stepDecelerate(long now) {
+        if (mDuration <= 0) {
+            return true;
+        }
+        final float t = Math.min(1f, (now - mStartTime) / (float) mDuration);
+        final float interpolated = (float) (1.0f - Math.pow((1.0f - t), 2 * DECELERATE_FACTOR));
+        mPosition = mFrom + (mTo - mFrom) * interpolated;
+        return t >= 1f;
+    }
+
+    private boolean stepSpring(long frameTime) {
+        final float omega = (float) Math.sqrt(mStiffness);
+        final float damping = 2 * mDampingRatio * omega;
+        float remaining = frameTime / 1000f + mSpringRemainder;
+        while (remaining >= SPRING_STEP) {
+            // 半隐式欧拉积分
+            final float acceleration = -mStiffness * (mPosition - mTo) - damping * mVelocity;
+            mVelocity += acceleration * SPRING_STEP;
+            mPosition += mVelocity * SPRING_STEP;
+            remaining -= SPRING_STEP;
+        }
+        mSpringRemainder = remaining;
+        return Math.abs(mPosition - mTo) < POSITION_THRESHOLD
+                && Math.abs(mVelocity) < VELOCITY_THRESHOLD;
+    }
+}
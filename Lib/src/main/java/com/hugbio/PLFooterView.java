@@ -0,0 +1,33 @@
+package com.hugbio;
+
+import android.content.Context;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * 底部（上拉加载更多）控件，跟随内容控件的底部移动，位置由PLSwipeRefreshLayout负责
+ */
+public interface PLFooterView {
+
+    /**
+     * 创建底部View
+     * @param context
+     * @param viewGroup 底部的父控件，只用于生成LayoutParams
+     */
+    View createFooterView(Context context, ViewGroup viewGroup);
+
+    /**
+     * 刷新状态发生变化监听
+     * @param status
+     */
+    void statusChange(PLSwipeRefreshLayout.STATUS status);
+
+    /**
+     * 内容View位置发生变化监听
+     * @param mCurrentTargetOffsetTop  内容View当前的位置（相对于顶部的偏移量，上拉时为负数）
+     * @param mLastTargetOffsetTop   内容View上一个位置
+     */
+    void offsetChange(int mCurrentTargetOffsetTop, int mLastTargetOffsetTop);
+
+    void onLayout(boolean changed, int left, int top, int right, int bottom);
+}
@@ -10,6 +10,12 @@ import android.view.ViewGroup;
  */
 public interface  PLHeaderView {
 
+    /**
+     * 创建头部View。使用{@link PLSwipeRefreshLayout#HEADER_INFLATE_ASYNC}时会在后台线程调用，
+     * 这时不要在这里操作已经显示的View
+     * @param context
+     * @param viewGroup 头部的父控件，只用于生成LayoutParams
+     */
     View createHeaderView(Context context, ViewGroup viewGroup);
 
     int getStartPosition(int headHeight);
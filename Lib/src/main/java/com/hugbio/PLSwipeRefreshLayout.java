@@ -16,67 +16,261 @@
 
 package com.hugbio;
 
+import android.annotation.TargetApi;
+import android.app.Activity;
 import android.content.Context;
+import android.content.ContextWrapper;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.Process;
+import android.os.SystemClock;
 import android.support.v4.view.MotionEventCompat;
+import android.support.v4.view.NestedScrollingChild;
+import android.support.v4.view.NestedScrollingChildHelper;
+import android.support.v4.view.NestedScrollingParent;
+import android.support.v4.view.NestedScrollingParentHelper;
+import android.support.v4.view.VelocityTrackerCompat;
 import android.support.v4.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.view.animation.Animation;
-import android.view.animation.Animation.AnimationListener;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Transformation;
+import android.view.ViewTreeObserver;
+import android.view.WindowManager;
+import android.view.animation.AnimationUtils;
 import android.widget.AbsListView;
 import android.widget.FrameLayout;
 import android.widget.RelativeLayout;
 
+import com.hugbio.core.GestureRecording;
+import com.hugbio.core.PullGesture;
+import com.hugbio.core.RefreshGovernor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 import static android.R.attr.width;
 
-public class PLSwipeRefreshLayout extends ViewGroup {
+public class PLSwipeRefreshLayout extends ViewGroup implements NestedScrollingParent,
+        NestedScrollingChild {
     private static final String LOG_TAG = PLSwipeRefreshLayout.class
             .getSimpleName();
 
     private static final long RETURN_TO_ORIGINAL_POSITION_TIMEOUT = 300;
-    private static final float DECELERATE_INTERPOLATION_FACTOR = 2f;
     private static final float MAX_SWIPE_DISTANCE_FACTOR = .6f;
     private static final int REFRESH_TRIGGER_DISTANCE = 120;
-    private static final int INVALID_POINTER = -1;
+    private static final int FLING_TRIGGER_VELOCITY = 1000;  //快速滑动触发刷新的默认速度（dp/秒）
+    private static final float FLING_TRIGGER_DISTANCE_RATIO = .5f;  //快速滑动触发刷新时至少需要达到的临界值比例
+    private static final STATUS[] STATUS_VALUES = STATUS.values();
 
     private View mTarget; // the content that gets pulled down
     private int mOriginalOffsetTop;  //内容控件的初始位置
     private OnRefreshListener mListener;
     private int mFrom;  //动画用到的开始值
-    private int mTouchSlop;  //手势滑动的最小有效值
-    private float mDistanceToTriggerSync = -1;  //松开手指可以刷新的最低滑动距离
     private int mMediumAnimationDuration;
     private int mCurrentTargetOffsetTop;   //当前内容控件的位置
 
-    private float mInitialMotionY;
-    private float mLastMotionY;
-    private boolean mIsBeingDragged;  //标记开始下拉
-    private boolean mIsBeingLoad;  //标记开始上拉
-    private int mActivePointerId = INVALID_POINTER;
+    // 手指、拖动、阻尼和状态切换的处理都在PullGesture中，这里只负责把MotionEvent转换后交给它
+    private final PullGesture mGesture;
+
+    // 快速滑动（fling）触发刷新相关
+    private VelocityTracker mVelocityTracker;  //每次手势从系统池中获取，结束时回收
+    private int mMaximumVelocity;
+    private float mReleaseVelocity;  //松手时的速度（像素/秒，向下为正），用作返回动画的初始速度
 
     // Target is returning to its start offset because it was cancelled or a
     // refresh was triggered.
     private boolean mReturningToStart;  //标记是否正在返回指定位置的动画（包括内容控件返回初始位置、头部控件返回顶部位置等）
-    private final DecelerateInterpolator mDecelerateInterpolator;
+    private final OffsetAnimator mOffsetAnimator;
+    private Runnable mAnimationEndAction;  //返回动画结束后执行
+    private static final int DEFAULT_HEADER_PLACEHOLDER_COLOR = 0xFFEEEEEE;  //与默认头部的背景一致
     private static final int[] LAYOUT_ATTRS = new int[]{android.R.attr.enabled};
 
     private View mHeaderView;   //头部控件，后面下拉刷新的头部动画可以通过设置自定义的Drawable来实现
     private int mHeaderStartPosition;
     private PLHeaderView plHeaderView;
 
-    //底部View还没实现。可以参照头部View来实现
-    private View mFooterView;
-    private int mFooterHeight = 200;
+    /**
+     * 在第一次measure时同步创建头部（默认）
+     */
+    public static final int HEADER_INFLATE_EAGER = 0;
+    /**
+     * 第一次下拉或者第一次setRefreshing(true)时才创建头部
+     */
+    public static final int HEADER_INFLATE_LAZY = 1;
+    /**
+     * attach到窗口后在后台线程创建头部，完成后再添加到控件中
+     */
+    public static final int HEADER_INFLATE_ASYNC = 2;
+
+    private static Executor sHeaderInflateExecutor;
+    private int mHeaderInflateMode = HEADER_INFLATE_EAGER;
+    private int mHeaderStartPositionOverride = -1;  //XML或者代码中指定的头部初始位置，小于0时由PLHeaderView决定
+    private int mTriggerDistanceOverride = -1;
+    private boolean mHeaderCreated;  //头部是否已经创建过（或者正在后台创建），避免重复创建
+    private boolean mHeaderNeedsMeasure;
+    private boolean mHeaderNeedsLayout;  //头部添加后还没有布局过，第一次布局时按changed处理
+    // 头部创建之前（延迟、后台创建）下拉露出的区域用纯色填充，不需要任何View
+    private final Paint mHeaderPlaceholderPaint = new Paint();
+    private int mHeaderInflateGeneration;  //用来丢弃已经过期的后台创建结果
+
+    private HeaderViewPool mHeaderViewPool;
+    private HeaderViewPool.Holder mPooledHeader;  //attach时从缓存池取出的头部，下一次onMeasure时添加
+    // 替换头部：旧头部淡出期间仍然保留在控件中，结束后放入缓存
+    private HeaderViewPool mRetiredHeaders;  //没有设置共享缓存池时，替换下来的头部放在这里
+    private PLHeaderView mFadingHeader;
+    private View mFadingHeaderView;
+    private int mFadingHeaderStartPosition;
+    private final Runnable mFinishHeaderFade = new Runnable() {
+        @Override
+        public void run() {
+            finishHeaderFade();
+        }
+    };
+    private boolean mHeaderReleased;  //plHeaderView已经连同头部还给了缓存池，再次使用前需要重新创建实例
+
+    // 手势性能统计。mMetrics只在设置了监听并且手势进行中时不为null，关闭时每个统计点只多一次判空
+    private OnGestureMetricsListener mMetricsListener;
+    private GestureMetrics mMetrics;
+    private final GestureMetrics mMetricsRecord = new GestureMetrics();
+    private float mFrameIntervalMillis = 1000f / 60;
+    private boolean mMetricsFrameMonitorRunning;
+    private long mLastMetricsFrameTime;
+    private final Runnable mMetricsFrameMonitor = new Runnable() {
+        @Override
+        public void run() {
+            final boolean animating = mOffsetAnimator.isRunning();
+            if (mMetrics == null || (!animating && !mGesture.isDragging())) {
+                mMetricsFrameMonitorRunning = false;
+                return;
+            }
+            final long now = AnimationUtils.currentAnimationTimeMillis();
+            if (mLastMetricsFrameTime > 0) {
+                final int dropped = Math.max(0, Math.round((now - mLastMetricsFrameTime) / mFrameIntervalMillis) - 1);
+                if (animating) {
+                    mMetrics.animationFrames++;
+                    mMetrics.animationDroppedFrames += dropped;
+                } else {
+                    mMetrics.dragFrames++;
+                    mMetrics.dragDroppedFrames += dropped;
+                }
+            }
+            mLastMetricsFrameTime = now;
+            ViewCompat.postOnAnimation(PLSwipeRefreshLayout.this, this);
+        }
+    };
+
+    // 性能追踪：区间名称和区间内的计数
+    static final String TRACE_MEASURE = "PLSwipe#onMeasure";
+    static final String TRACE_CREATE_HEADER = "PLSwipe#createHeaderView";
+    static final String TRACE_LAYOUT = "PLSwipe#onLayout";
+    static final String TRACE_HEADER_LAYOUT = "PLSwipe#headerOnLayout";
+    static final String TRACE_INTERCEPT = "PLSwipe#onInterceptTouchEvent";
+    static final String TRACE_TOUCH = "PLSwipe#onTouchEvent";
+    static final String TRACE_OFFSET = "PLSwipe#setTargetOffset";
+    static final String TRACE_ANIMATION_FRAME = "PLSwipe#animationFrame";
+    static final String COUNTER_OFFSET_UPDATES = "headerOffsetUpdates";
+    static final String COUNTER_STATE_CHANGES = "stateChanges";
+    private static final int MAX_TRACE_DEPTH = 8;
+    private PLTracer mTracer = PLTracers.NONE;
+    private PLTracer mPendingTracer;  //区间内设置的tracer，所有区间结束后再切换
+    private int mTraceDepth;
+    private int mHeaderOffsetUpdates;  //累计值，区间结束时报告差值
+    private int mStateChanges;
+    private final int[] mTraceOffsetStart = new int[MAX_TRACE_DEPTH];
+    private final int[] mTraceStateStart = new int[MAX_TRACE_DEPTH];
+
+    private GestureRecording mGestureRecording;  //录制触摸事件，没有时为null
+
+    // 刷新会话：超时、最短/最长显示时间以及重复触发的合并
+    private OnRefreshSessionListener mRefreshSessionListener;
+    private RefreshSession mRefreshSession;  //正在进行的刷新，没有时为null
+    private long mRefreshTimeout;
+    private long mMinSpinnerTime;
+    private long mMaxSpinnerTime;
+    private long mSpinnerStartTime;
+
+    // 刷新限流：合并刷新中的重复触发，最小间隔内的触发只播放头部动画（或者直接忽略）
+    private final RefreshGovernor mRefreshGovernor = new RefreshGovernor();
+    private boolean mAnimateSkippedRefresh;
+    // 数据有效期：attach或者显示时数据已经过期就在后台刷新（不显示头部），有效期内的下拉只播放头部动画
+    private final Runnable mFreshnessCheck = new Runnable() {
+        @Override
+        public void run() {
+            revalidateIfStale();
+        }
+    };
+
+    // 状态保存：重建后恢复刷新/加载状态和位置，由OnRefreshRestoreListener重新关联之前的请求
+    private OnRefreshRestoreListener mRefreshRestoreListener;
+    private boolean mStateSaved;  //已经保存了状态，这时因为配置变化detach不取消刷新会话；窗口重新显示后清除
+    private boolean mRestoreOffsetPending;
+    private int mRestoredOffset;
+    private final Runnable mRefreshTimeoutAction = new Runnable() {
+        @Override
+        public void run() {
+            cancelRefreshSession();
+            settleHeader();  //超时不再等最短显示时间
+        }
+    };
+    private final Runnable mSettleHeaderAction = new Runnable() {
+        @Override
+        public void run() {
+            settleHeader();
+        }
+    };
+
+    // measure/layout缓存：输入没有变化并且子控件没有请求重新布局时跳过
+    private int mLastWidthMeasureSpec = -1;
+    private int mLastHeightMeasureSpec = -1;
+    private int mLastHorizontalPadding;
+    private int mLastVerticalPadding;
+    private View mMeasuredTarget;
+    private final SparseIntArray mHeaderHeightCache = new SparseIntArray();  //头部宽度 -> 高度
+    private final SparseIntArray mHeaderStartCache = new SparseIntArray();  //头部宽度 -> 初始位置
+    private final SparseIntArray mHeaderTriggerCache = new SparseIntArray();  //头部宽度 -> 触发距离
+    private int mLaidOutLeft = Integer.MIN_VALUE;
+    private int mLaidOutTop = Integer.MIN_VALUE;
+    private int mLaidOutWidth;
+    private int mLaidOutHeight;
+    private int mLaidOutHeaderTop;
+    private int mLaidOutHeaderHeight;
+    private int mLaidOutFooterHeight;
+
+    private View mFooterView;  //底部控件，布局在内容控件的下方并跟随内容控件移动
+    private int mFooterHeight;
+    private PLFooterView plFooterView;
+    private boolean mFooterCreated;
+    private boolean mFooterNeedsMeasure;
+    private boolean mLoadEnabled = true;
+    private OnLoadListener mLoadListener;
+
+    // 预加载：内容控件接近底部时提前触发加载
+    private int mPrefetchDistance;
+    private int mPrefetchItemCount;
+    private boolean mPrefetchArmed = true;  //触发一次后需要先离开预加载范围才能再次触发
+    private final Runnable mPrefetchLoad = new Runnable() {
+        @Override
+        public void run() {
+            if (mLoadStatus == STATUS.NORMAL && mLoadListener != null && mGesture.isLoadEnabled()) {
+                startLoad(false);
+            }
+        }
+    };
 
-    private STATUS mStatus = STATUS.NORMAL;
+    // 顶部（刷新）和底部（加载）的状态各自独立，可以同时刷新和加载
+    private STATUS mRefreshStatus = STATUS.NORMAL;  //NORMAL、LOOSENREFRESH或REFRESHING
+    private STATUS mLoadStatus = STATUS.NORMAL;  //NORMAL、LOOSENLOAD或LOADING
+    private boolean mFooterShown;  //加载中并且露出了底部，预加载时为false
     private boolean mDisable; // 用来控制控件是否允许滚动
     private int mHeaderHeight;
 
@@ -88,24 +282,82 @@ public class PLSwipeRefreshLayout extends ViewGroup {
         LOADING  //正在加载状态
     }
 
-    private boolean isRefreshEnabled = true;
-    private boolean isLoadEnabled = true;
+    // 嵌套滑动相关
+    private final NestedScrollingParentHelper mNestedScrollingParentHelper;
+    private final NestedScrollingChildHelper mNestedScrollingChildHelper;
+    private final int[] mParentScrollConsumed = new int[2];
+    private boolean mNestedScrollInProgress;
+
+    // 内容控件是否到达顶部（底部）的判断策略及缓存结果，只有内容控件滚动或重新布局后才重新计算
+    private ScrollEdgeProbe mScrollEdgeProbe;
+    private boolean mCustomScrollEdgeProbe;
+    private boolean mScrollEdgeDirty = true;
+    private boolean mCanChildScrollUp;
+    private boolean mCanChildScrollDown;
+    private final ViewTreeObserver.OnScrollChangedListener mOnScrollChangedListener = new ViewTreeObserver.OnScrollChangedListener() {
+        @Override
+        public void onScrollChanged() {
+            mScrollEdgeDirty = true;
+            if (mPrefetchDistance > 0 || mPrefetchItemCount > 0) {
+                checkLoadPrefetch();
+            }
+        }
+    };
+
+    /**
+     * 拖动时通过offsetTopAndBottom移动内容控件，并重绘整个控件（默认）
+     */
+    public static final int OFFSET_MODE_LAYOUT = 0;
+    /**
+     * 拖动时通过setTranslationY移动内容控件，只更新RenderNode的属性，不重绘父控件也不调整子控件顺序。
+     * 需要API 11以上，低版本自动使用{@link #OFFSET_MODE_LAYOUT}
+     */
+    public static final int OFFSET_MODE_TRANSLATION = 1;
+
+    private int mOffsetMode = OFFSET_MODE_LAYOUT;
+
+    // 合并MOVE事件：只记录最新的位置，每帧应用一次
+    private boolean mCoalesceMoveEvents;
+    private boolean mOffsetUpdatePending;
+    private int mPendingTargetTop;
+    private final Runnable mApplyPendingOffset = new Runnable() {
+        @Override
+        public void run() {
+            flushPendingOffset();
+        }
+    };
+
+    public static final int RETURN_ANIMATION_DECELERATE = OffsetAnimator.MODE_DECELERATE;
+    public static final int RETURN_ANIMATION_SPRING = OffsetAnimator.MODE_SPRING;
 
-    private final Animation mAnimateToStartPosition = new Animation() {
+    private final OffsetAnimator.Listener mAnimateToStartPosition = new OffsetAnimator.Listener() {
         @Override
-        public void applyTransformation(float interpolatedTime, Transformation t) {
-            int targetTop = 0;
-            if (mFrom != mOriginalOffsetTop) {
-                targetTop = (mFrom + (int) ((mOriginalOffsetTop - mFrom) * interpolatedTime));
+        public void onOffsetUpdate(OffsetAnimator animator, int targetTop) {
+            if (mTarget == null) {
+                animator.cancel();
+                return;
             }
+            beginTrace(TRACE_ANIMATION_FRAME);
+            try {
+                final int currentTop = getTargetTop();
+                int offset = targetTop - currentTop;
 
-            int offset = targetTop - mTarget.getTop();
-            final int currentTop = mTarget.getTop();
+                if (offset + currentTop < -mFooterHeight) {
+                    offset = -mFooterHeight - currentTop;
+                }
+                setTargetOffsetTopAndBottom(offset);
+            } finally {
+                endTrace();
+            }
+        }
 
-            if (offset + currentTop < -mFooterHeight) {
-                offset = -mFooterHeight - currentTop;
+        @Override
+        public void onOffsetAnimationEnd(OffsetAnimator animator) {
+            final Runnable endAction = mAnimationEndAction;
+            mAnimationEndAction = null;
+            if (endAction != null) {
+                endAction.run();
             }
-            setTargetOffsetTopAndBottom(offset);
         }
     };
 
@@ -127,24 +379,25 @@ public class PLSwipeRefreshLayout extends ViewGroup {
 //        }
 //    };
 
-    private final AnimationListener mReturnToStartPositionListener = new BaseAnimationListener() {
+    private final Runnable mReturnToStartPositionListener = new Runnable() {
         @Override
-        public void onAnimationEnd(Animation animation) {
+        public void run() {
             // Once the target content has returned to its start position, reset
             // the target offset to 0
-            mCurrentTargetOffsetTop = 0;
+            mCurrentTargetOffsetTop = getRestOffset();
 //            setStatus(STATUS.NORMAL);
             mDisable = false;
+            maybeReportMetrics();
         }
     };
 
-    private final AnimationListener mReturnToHeaderPositionListener = new BaseAnimationListener() {
+    private final Runnable mReturnToHeaderPositionListener = new Runnable() {
         @Override
-        public void onAnimationEnd(Animation animation) {
+        public void run() {
             // Once the target content has returned to its start position, reset
             // the target offset to 0
             mCurrentTargetOffsetTop = mHeaderStartPosition;
-            setStatus(STATUS.REFRESHING);
+            setRefreshStatus(STATUS.REFRESHING);
         }
     };
 
@@ -195,42 +448,303 @@ public class PLSwipeRefreshLayout extends ViewGroup {
     public PLSwipeRefreshLayout(Context context, AttributeSet attrs) {
         super(context, attrs);
 
-        mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
+        final ViewConfiguration configuration = ViewConfiguration.get(context);
+        mGesture = new PullGesture(mGestureHost);
+        mGesture.setTouchSlop(configuration.getScaledTouchSlop());
+        mGesture.setFlingTrigger(FLING_TRIGGER_VELOCITY * getResources().getDisplayMetrics().density,
+                FLING_TRIGGER_DISTANCE_RATIO);
+        mMaximumVelocity = configuration.getScaledMaximumFlingVelocity();
 
         mMediumAnimationDuration = getResources().getInteger(
                 android.R.integer.config_mediumAnimTime);
 
-        mDecelerateInterpolator = new DecelerateInterpolator(
-                DECELERATE_INTERPOLATION_FACTOR);
+        mOffsetAnimator = new OffsetAnimator(this, mAnimateToStartPosition, mMediumAnimationDuration);
 
         final TypedArray a = context
                 .obtainStyledAttributes(attrs, LAYOUT_ATTRS);
         setEnabled(a.getBoolean(0, true));
         a.recycle();
-        plHeaderView = new NormalHeaderView();
+        // 在创建头部之前确定头部的类型，避免先创建默认头部再替换
+        final TypedArray styled = context.obtainStyledAttributes(attrs, R.styleable.PLSwipeRefreshLayout);
+        plHeaderView = parseHeaderView(context, styled.getString(R.styleable.PLSwipeRefreshLayout_plHeaderClass),
+                styled.getResourceId(R.styleable.PLSwipeRefreshLayout_plHeaderLayout, 0));
+        mHeaderStartPositionOverride = styled.getDimensionPixelOffset(R.styleable.PLSwipeRefreshLayout_plHeaderStartPosition, -1);
+        mTriggerDistanceOverride = styled.getDimensionPixelOffset(R.styleable.PLSwipeRefreshLayout_plTriggerDistance, -1);
+        mHeaderInflateMode = styled.getInt(R.styleable.PLSwipeRefreshLayout_plHeaderInflateMode, HEADER_INFLATE_EAGER);
+        styled.recycle();
+        plFooterView = new NormalFooterView();
+        updateLoadEnabled();  //还没有设置OnLoadListener，不能上拉加载
+        mHeaderPlaceholderPaint.setColor(DEFAULT_HEADER_PLACEHOLDER_COLOR);
+
+        mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
+        mNestedScrollingChildHelper = new NestedScrollingChildHelper(this);
+        setNestedScrollingEnabled(true);
     }
 
 
-    private void createHeaderView(int widthMeasureSpec, int heightMeasureSpec) {
-        if (mHeaderView != null) {
-            removeView(mHeaderView);
+    private static PLHeaderView parseHeaderView(Context context, String className, int layoutResId) {
+        if (className == null) {
+            return layoutResId != 0 ? new LayoutHeaderView(layoutResId) : new NormalHeaderView();
         }
-        mHeaderView = plHeaderView.createHeaderView(getContext(),this);
-        if (mHeaderView != null) {
-            LayoutParams layoutParams = mHeaderView.getLayoutParams();
-            addView(mHeaderView,0,layoutParams);
-            measureChild(mHeaderView, widthMeasureSpec, heightMeasureSpec);
-            mHeaderHeight = mHeaderView.getMeasuredHeight();
-            mHeaderStartPosition = plHeaderView.getStartPosition(mHeaderHeight);
-            mDistanceToTriggerSync = plHeaderView.getDistanceToTriggerSync(mHeaderHeight);
+        final String fullName = className.startsWith(".") ? context.getPackageName() + className : className;
+        try {
+            final Class<? extends PLHeaderView> type = context.getClassLoader().loadClass(fullName)
+                    .asSubclass(PLHeaderView.class);
+            return type.newInstance();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Could not find header class " + fullName, e);
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException(fullName + " is not a PLHeaderView", e);
+        } catch (InstantiationException e) {
+            throw new IllegalArgumentException(fullName + " needs a public no-arg constructor", e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(fullName + " needs a public no-arg constructor", e);
+        }
+    }
+
+    /**
+     * 设置头部的初始位置和触发刷新的距离，覆盖PLHeaderView的返回值，对应XML属性plHeaderStartPosition和plTriggerDistance
+     *
+     * @param startPosition   像素，小于0表示由PLHeaderView决定
+     * @param triggerDistance 像素，小于0表示由PLHeaderView决定
+     */
+    public void setHeaderPositions(int startPosition, int triggerDistance) {
+        mHeaderStartPositionOverride = startPosition;
+        mTriggerDistanceOverride = triggerDistance;
+        mHeaderHeightCache.clear();
+        mHeaderStartCache.clear();
+        mHeaderTriggerCache.clear();
+        mHeaderNeedsMeasure = true;
+        requestLayout();
+    }
+
+    /**
+     * 设置头部创建之前的占位颜色。延迟或者后台创建时，头部还没有添加就被拉开的区域用这个颜色填充
+     *
+     * @param color 传0表示不填充
+     */
+    public void setHeaderPlaceholderColor(int color) {
+        mHeaderPlaceholderPaint.setColor(color);
+        invalidate();
+    }
+
+    @Override
+    protected void dispatchDraw(Canvas canvas) {
+        if (mHeaderView == null && mTarget != null && mHeaderPlaceholderPaint.getColor() != 0) {
+            final int targetTop = getTargetTop();
+            if (targetTop > getPaddingTop()) {
+                canvas.drawRect(getPaddingLeft(), getPaddingTop(), getWidth() - getPaddingRight(),
+                        targetTop, mHeaderPlaceholderPaint);
+            }
+        }
+        super.dispatchDraw(canvas);
+    }
+
+    /**
+     * 设置头部的创建时机，需要在控件第一次measure之前调用
+     *
+     * @param mode {@link #HEADER_INFLATE_EAGER}、{@link #HEADER_INFLATE_LAZY} 或 {@link #HEADER_INFLATE_ASYNC}
+     */
+    public void setHeaderInflateMode(int mode) {
+        mHeaderInflateMode = mode;
+        if (mode == HEADER_INFLATE_ASYNC && ViewCompat.isAttachedToWindow(this)) {
+            createHeaderViewAsync();
+        }
+    }
+
+    /**
+     * 同步创建头部。只会执行一次，头部的测量放到下一次onMeasure中
+     */
+    private void createHeaderView() {
+        beginTrace(TRACE_CREATE_HEADER);
+        try {
+            createHeaderViewInternal();
+        } finally {
+            endTrace();
+        }
+    }
+
+    private void createHeaderViewInternal() {
+        if (mHeaderCreated) {
+            return;
+        }
+        mHeaderCreated = true;
+        if (mPooledHeader != null) {
+            final HeaderViewPool.Holder holder = mPooledHeader;
+            mPooledHeader = null;
+            plHeaderView = holder.header;
+            mHeaderReleased = false;
+            addHeaderView(holder.view);
+            return;
+        }
+        addHeaderView(obtainPLHeaderView().createHeaderView(getContext(), this));
+    }
+
+    /**
+     * 设置头部缓存池，可以在多个控件之间共享。实现了{@link HeaderViewPool.Recyclable}的头部会在detach时还给缓存池，
+     * attach时优先从缓存池取，因此plHeaderView实例可能会被替换为配置相同的其他实例；其他头部detach时保留在控件中
+     *
+     * @param pool 传null则不使用缓存池
+     */
+    public void setHeaderViewPool(HeaderViewPool pool) {
+        mHeaderViewPool = pool;
+    }
+
+    /**
+     * @return 可以用来创建头部的PLHeaderView，之前的实例已经还给缓存池时创建一个配置相同的新实例
+     */
+    private PLHeaderView obtainPLHeaderView() {
+        if (mHeaderReleased) {
+            plHeaderView = ((HeaderViewPool.Recyclable) plHeaderView).newHeader();
+            mHeaderReleased = false;
+        }
+        return plHeaderView;
+    }
+
+    /**
+     * 在后台线程创建头部，完成后切换回主线程添加。创建失败时（部分控件只能在主线程创建）回到主线程重新创建
+     */
+    private void createHeaderViewAsync() {
+        if (mHeaderCreated) {
+            return;
+        }
+        mHeaderCreated = true;
+        final int generation = ++mHeaderInflateGeneration;
+        final PLHeaderView headerView = obtainPLHeaderView();
+        final Context context = getContext();
+        getHeaderInflateExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                View view;
+                try {
+                    view = headerView.createHeaderView(context, PLSwipeRefreshLayout.this);
+                } catch (RuntimeException e) {
+                    Log.w(LOG_TAG, "Failed to inflate header off the main thread, retrying on the main thread", e);
+                    view = null;
+                }
+                final View result = view;
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mHeaderInflateGeneration || headerView != plHeaderView) {
+                            return;  //头部已经被替换或者控件已经detach
+                        }
+                        addHeaderView(result != null ? result : headerView.createHeaderView(getContext(), PLSwipeRefreshLayout.this));
+                    }
+                });
+            }
+        });
+    }
+
+    private static synchronized Executor getHeaderInflateExecutor() {
+        if (sHeaderInflateExecutor == null) {
+            sHeaderInflateExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable r) {
+                    Thread thread = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                            r.run();
+                        }
+                    }, "PLSwipeRefreshLayout-header");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sHeaderInflateExecutor;
+    }
+
+    private void addHeaderView(View headerView) {
+        if (headerView != null) {
+            LayoutParams layoutParams = headerView.getLayoutParams();
+            addView(headerView, 0, layoutParams);
+            onHeaderViewAdded(headerView);
+        } else {
+            mHeaderView = null;
+            mGesture.setRefreshEnabled(false);
+        }
+    }
+
+    private void onHeaderViewAdded(View headerView) {
+        mHeaderView = headerView;
+        mHeaderNeedsMeasure = true;
+        mHeaderNeedsLayout = true;
+        mHeaderHeightCache.clear();  //换了头部，之前缓存的尺寸不再有效
+        mHeaderStartCache.clear();
+        mHeaderTriggerCache.clear();
+        plHeaderView.statusChange(mRefreshStatus);  //头部创建之前可能已经进入刷新状态
+    }
+
+    private void createFooterView() {
+        mFooterCreated = true;
+        mFooterView = plFooterView.createFooterView(getContext(), this);
+        if (mFooterView != null) {
+            addView(mFooterView, 0, mFooterView.getLayoutParams());
+            mFooterNeedsMeasure = true;
+            plFooterView.statusChange(mLoadStatus);
         } else {
-            isRefreshEnabled = false;
+            updateLoadEnabled();
+        }
+    }
+
+    /**
+     * @return 是否可能加载：允许上拉加载、设置了OnLoadListener并且有底部。不会加载时不创建底部，也不接受上拉
+     */
+    private boolean canLoad() {
+        return mLoadEnabled && mLoadListener != null && plFooterView != null && (!mFooterCreated || mFooterView != null);
+    }
+
+    private void updateLoadEnabled() {
+        mGesture.setLoadEnabled(canLoad());
+        if (!mFooterCreated && canLoad()) {
+            requestLayout();  //底部在下一次onMeasure时创建
+        }
+    }
+
+    private void measureHeaderView(int widthMeasureSpec, int heightMeasureSpec) {
+        mHeaderNeedsMeasure = false;
+        measureChild(mHeaderView, widthMeasureSpec, heightMeasureSpec);
+        mHeaderHeight = mHeaderView.getMeasuredHeight();
+        final int headerWidth = mHeaderView.getMeasuredWidth();
+        if (mHeaderHeightCache.get(headerWidth, -1) != mHeaderHeight) {  //这个宽度第一次出现或者头部高度变了
+            mHeaderHeightCache.put(headerWidth, mHeaderHeight);
+            mHeaderStartCache.put(headerWidth, mHeaderStartPositionOverride >= 0
+                    ? mHeaderStartPositionOverride : plHeaderView.getStartPosition(mHeaderHeight));
+            mHeaderTriggerCache.put(headerWidth, mTriggerDistanceOverride >= 0
+                    ? mTriggerDistanceOverride : plHeaderView.getDistanceToTriggerSync(mHeaderHeight));
+        }
+        mHeaderStartPosition = mHeaderStartCache.get(headerWidth);
+        mGesture.setDistanceToTriggerSync(mHeaderTriggerCache.get(headerWidth));
+    }
+
+    /**
+     * 延迟创建模式下，第一次需要显示头部时创建
+     */
+    private void ensureHeaderView() {
+        if (!mHeaderCreated && mHeaderInflateMode == HEADER_INFLATE_LAZY) {
+            createHeaderView();
         }
     }
 
     @Override
     public void onAttachedToWindow() {
         super.onAttachedToWindow();
+        getViewTreeObserver().addOnScrollChangedListener(mOnScrollChangedListener);
+        mScrollEdgeDirty = true;
+        mStateSaved = false;
+        scheduleFreshnessCheck();
+        if (isPoolable(plHeaderView) && !mHeaderCreated && mPooledHeader == null) {
+            // 这里添加子控件会导致它收到两次attach，先取出来，下一次onMeasure时再添加
+            mPooledHeader = mHeaderViewPool.acquire(plHeaderView);
+            if (mPooledHeader != null) {
+                requestLayout();  //尺寸没有变化时（例如RecyclerView重新attach）不会再onMeasure
+            }
+        }
+        if (mHeaderInflateMode == HEADER_INFLATE_ASYNC && mPooledHeader == null) {
+            createHeaderViewAsync();
+        }
         removeCallbacks(mCancel);
         removeCallbacks(mReturnToStartPosition);
 //        removeCallbacks(mReturnToHeaderPosition);
@@ -239,114 +753,777 @@ public class PLSwipeRefreshLayout extends ViewGroup {
     @Override
     public void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnScrollChangedListener(mOnScrollChangedListener);
         removeCallbacks(mReturnToStartPosition);
         removeCallbacks(mCancel);
 //        removeCallbacks(mReturnToHeaderPosition);
+        removeCallbacks(mApplyPendingOffset);
+        removeCallbacks(mPrefetchLoad);
+        removeCallbacks(mFreshnessCheck);
+        if (mRefreshSession != null && mStateSaved && mRefreshRestoreListener != null && isChangingConfigurations()) {
+            // 配置变化，控件重建后会恢复刷新，请求交给OnRefreshRestoreListener重新关联，这里只放弃会话
+            removeCallbacks(mRefreshTimeoutAction);
+            mRefreshSession = null;
+        } else if (mRefreshSession != null) {  //取消正在进行的刷新，头部直接返回
+            cancelRefreshSession();
+            settleHeader();
+        }
+        mOffsetUpdatePending = false;
+        mOffsetAnimator.cancel();
+        mAnimationEndAction = null;
+        mMetrics = null;  //丢弃没有完成的统计
+        finishHeaderFade();
+        if (mHeaderViewPool != null) {
+            if (mHeaderView != null && isPoolable(plHeaderView)) {
+                // 子控件已经收到了detach，removeView会再分发一次并请求布局，这里只从数组中摘下来
+                detachViewFromParent(mHeaderView);
+                mHeaderViewPool.release(plHeaderView, mHeaderView);
+                mHeaderView = null;
+                mHeaderCreated = false;
+                mHeaderReleased = true;
+            }
+            if (mPooledHeader != null) {  //attach后还没有measure就detach了
+                mHeaderViewPool.release(mPooledHeader.header, mPooledHeader.view);
+                mPooledHeader = null;
+            }
+        }
+        if (mHeaderView == null && mHeaderCreated) {
+            // 后台创建还没有完成，丢弃结果，下次attach时重新创建
+            mHeaderInflateGeneration++;
+            mHeaderCreated = false;
+        }
     }
 
     private void animateOffsetToStartPosition(int from,
-                                              AnimationListener listener) {
+                                              Runnable endAction) {
         if (mTarget == null) {
             return;
         }
         mFrom = from;
-        mAnimateToStartPosition.reset();
-        mAnimateToStartPosition.setDuration(mMediumAnimationDuration);
-        mAnimateToStartPosition.setAnimationListener(listener);
-        mAnimateToStartPosition.setInterpolator(mDecelerateInterpolator);
-        mTarget.startAnimation(mAnimateToStartPosition);
+        mAnimationEndAction = endAction;
+        final int to = mOriginalOffsetTop + getRestOffset();
+        if (mOffsetAnimator.isRunning()) {
+            mOffsetAnimator.retarget(to);  //运行中直接修改目标位置，保留当前速度
+        } else {
+            mOffsetAnimator.start(mFrom, to, mReleaseVelocity);
+        }
+        mReleaseVelocity = 0;
+        if (mMetrics != null) {
+            startMetricsFrameMonitor();
+        }
     }
 
-//    private void animateOffsetToHeaderPosition(int from,
-//                                               AnimationListener listener) {
-//        if(mHeaderView == null){
-//            return;
-//        }
-//        mFrom = from;
-//        mAnimateToHeaderPosition.reset();
-//        mAnimateToHeaderPosition.setDuration(mMediumAnimationDuration);
-//        mAnimateToHeaderPosition.setAnimationListener(listener);
-//        mAnimateToHeaderPosition.setInterpolator(mDecelerateInterpolator);
-//        mHeaderView.startAnimation(mAnimateToHeaderPosition);
-//    }
+    /**
+     * 设置性能追踪，在measure、layout、触摸分发、位移和返回动画的每一帧外面加上命名的区间，
+     * 例如传入{@link PLTracers#system()}写入系统trace。传null关闭（默认）
+     */
+    public void setTracer(PLTracer tracer) {
+        final PLTracer newTracer = tracer == null ? PLTracers.NONE : tracer;
+        if (mTraceDepth > 0) {
+            mPendingTracer = newTracer;  //保证begin和end由同一个tracer处理
+        } else {
+            mTracer = newTracer;
+        }
+    }
 
     /**
-     * Set the listener to be notified when a refresh is triggered via the swipe
-     * gesture.
+     * 录制之后的触摸事件（包括历史采样点、内容控件的滚动状态和松手速度），可以保存下来在JVM中用PullGesture回放。传null停止录制
      */
-    public void setOnRefreshListener(OnRefreshListener listener) {
-        mListener = listener;
+    public void setGestureRecording(GestureRecording recording) {
+        mGestureRecording = recording;
     }
 
-    public void setRefreshEnabled(boolean refreshEnabled) {
-        if (mHeaderView == null) {
-            return;
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (mGestureRecording != null) {
+            recordTouchEvent(mGestureRecording, ev);
         }
-        isRefreshEnabled = refreshEnabled;
+        return super.dispatchTouchEvent(ev);
     }
 
-    public void setLoadEnabled(boolean loadEnabled) {
-        if (mFooterView == null) {
-            return;
+    private void recordTouchEvent(GestureRecording recording, MotionEvent ev) {
+        final long time = ev.getEventTime();
+        final int flags = (canChildScrollUp() ? GestureRecording.FLAG_CAN_SCROLL_UP : 0)
+                | (canChildScrollDown() ? GestureRecording.FLAG_CAN_SCROLL_DOWN : 0);
+        switch (MotionEventCompat.getActionMasked(ev)) {
+            case MotionEvent.ACTION_DOWN:
+                recording.setConfig(mGesture.getTouchSlop(), mGesture.getDistanceToTriggerSync());  //触发距离在测量头部后才确定
+                recording.addDown(MotionEventCompat.getPointerId(ev, 0), ev.getY(), time, flags);
+                break;
+            case MotionEvent.ACTION_MOVE: {
+                final int pointerIndex = MotionEventCompat.findPointerIndex(ev, mGesture.getActivePointerId());
+                if (pointerIndex < 0) {
+                    return;
+                }
+                final int historySize = ev.getHistorySize();
+                for (int h = 0; h < historySize; h++) {
+                    recording.addHistoricalSample(ev.getHistoricalY(pointerIndex, h), ev.getHistoricalEventTime(h));
+                }
+                recording.addMove(MotionEventCompat.getY(ev, pointerIndex), time, flags);
+                break;
+            }
+            case MotionEventCompat.ACTION_POINTER_DOWN: {
+                final int index = MotionEventCompat.getActionIndex(ev);
+                recording.addPointerDown(MotionEventCompat.getPointerId(ev, index), MotionEventCompat.getY(ev, index), time, flags);
+                break;
+            }
+            case MotionEventCompat.ACTION_POINTER_UP: {
+                final int index = MotionEventCompat.getActionIndex(ev);
+                final int otherIndex = index == 0 ? 1 : 0;  //与onSecondaryPointerUp一致
+                recording.addPointerUp(MotionEventCompat.getPointerId(ev, index),
+                        MotionEventCompat.getPointerId(ev, otherIndex), MotionEventCompat.getY(ev, otherIndex), time, flags);
+                break;
+            }
+            case MotionEvent.ACTION_UP:
+                recording.addUp(ev.getY(), time, flags);  //松手速度在onTouchEvent中计算后补上
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                recording.addCancel(time, flags);
+                break;
         }
-        isLoadEnabled = loadEnabled;
     }
 
-    /**
-     * 通知控件刷新状态已更改。 当通过滑动手势触发刷新时，不要调用此方法。
-     *
-     * @param refreshing Whether or not the view should show refresh progress.
-     */
-    public void setRefreshing(boolean refreshing) {
-        if (isRefreshing() != refreshing) {
-            ensureTarget();
-            setStatus(refreshing ? STATUS.REFRESHING : STATUS.NORMAL);
+    private void beginTrace(String name) {
+        if (mTraceDepth < MAX_TRACE_DEPTH) {
+            mTraceOffsetStart[mTraceDepth] = mHeaderOffsetUpdates;
+            mTraceStateStart[mTraceDepth] = mStateChanges;
         }
-        if(isRefreshing()){
-            mReturnToStartPosition.run();
+        mTraceDepth++;
+        mTracer.beginSection(name);
+    }
+
+    private void endTrace() {
+        mTraceDepth--;
+        if (mTraceDepth < MAX_TRACE_DEPTH) {
+            final int offsetUpdates = mHeaderOffsetUpdates - mTraceOffsetStart[mTraceDepth];
+            if (offsetUpdates != 0) {
+                mTracer.counter(COUNTER_OFFSET_UPDATES, offsetUpdates);
+            }
+            final int stateChanges = mStateChanges - mTraceStateStart[mTraceDepth];
+            if (stateChanges != 0) {
+                mTracer.counter(COUNTER_STATE_CHANGES, stateChanges);
+            }
+        }
+        mTracer.endSection();
+        if (mTraceDepth == 0 && mPendingTracer != null) {
+            mTracer = mPendingTracer;
+            mPendingTracer = null;
         }
     }
 
     /**
-     * 通知控件加载状态已更改。 当通过滑动手势触发加载时，不要调用此方法。
+     * 设置手势性能统计的监听，每次手势结束并且控件回到静止状态时回调一次。传null关闭统计
      *
-     * @param loading
+     * @param listener
      */
-    public void setLoading(boolean loading) {
-        if (isLoading() != loading) {
-            ensureTarget();
-            setStatus(loading ? STATUS.LOADING : STATUS.NORMAL);
+    public void setOnGestureMetricsListener(OnGestureMetricsListener listener) {
+        mMetricsListener = listener;
+        if (listener == null) {
+            mMetrics = null;
+            return;
+        }
+        final WindowManager windowManager = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+        final float refreshRate = windowManager != null ? windowManager.getDefaultDisplay().getRefreshRate() : 0;
+        mFrameIntervalMillis = 1000f / (refreshRate > 0 ? refreshRate : 60);
+    }
+
+    private void beginMetrics() {
+        if (mMetricsListener == null || mMetrics != null) {
+            return;
+        }
+        mMetrics = mMetricsRecord;
+        mMetrics.reset();
+        startMetricsFrameMonitor();
+    }
+
+    private void startMetricsFrameMonitor() {
+        if (!mMetricsFrameMonitorRunning) {
+            mMetricsFrameMonitorRunning = true;
+            mLastMetricsFrameTime = 0;
+            ViewCompat.postOnAnimation(this, mMetricsFrameMonitor);
         }
-        mReturnToStartPosition.run();  //需要修改
-//        if(mLoading){
-//        }else {
-//            mReturnToStartPosition.run();
-//        }
     }
 
     /**
-     * @return Whether the SwipeRefreshWidget is actively showing refresh
-     * progress.
+     * 控件回到静止状态（不在拖动、没有动画、不在刷新或加载）时回调统计结果
      */
-    public boolean isRefreshing() {
-        return mStatus == STATUS.REFRESHING;
+    private void maybeReportMetrics() {
+        if (mMetrics == null || mGesture.isDragging() || mOffsetAnimator.isRunning()
+                || isRefreshing() || isLoading()) {
+            return;
+        }
+        final GestureMetrics metrics = mMetrics;
+        mMetrics = null;
+        if (metrics.stopTime != 0) {
+            metrics.stopToSettleNanos = System.nanoTime() - metrics.stopTime;
+        }
+        if (mMetricsListener != null) {
+            mMetricsListener.onGestureMetrics(metrics);
+        }
     }
 
-    public boolean isLoading() {
-        return mStatus == STATUS.LOADING;
+    /**
+     * 设置快速滑动触发刷新（加载）的条件：松手时的速度不小于minVelocity，并且滑动距离不小于临界值的minDistanceRatio倍。
+     * 即使没有进入松开刷新状态，满足条件也会触发刷新
+     *
+     * @param minVelocity      最小速度（像素/秒），小于等于0则关闭该功能
+     * @param minDistanceRatio 滑动距离相对于临界值的最小比例（0～1）
+     */
+    public void setFlingTrigger(float minVelocity, float minDistanceRatio) {
+        mGesture.setFlingTrigger(minVelocity, minDistanceRatio);
     }
 
-
-    public void setPlHeaderView(PLHeaderView plHeaderView) {
-        if (plHeaderView == null) {
+    /**
+     * 设置拖动时移动内容控件的方式，需要在没有拖动和动画时调用
+     *
+     * @param mode {@link #OFFSET_MODE_LAYOUT} 或 {@link #OFFSET_MODE_TRANSLATION}
+     */
+    public void setOffsetMode(int mode) {
+        if (mode == OFFSET_MODE_TRANSLATION && android.os.Build.VERSION.SDK_INT < 11) {
+            mode = OFFSET_MODE_LAYOUT;
+        }
+        if (mOffsetMode == mode) {
             return;
         }
-        this.plHeaderView = plHeaderView;
-//        createHeaderView();
+        if (mTarget != null && mOffsetMode == OFFSET_MODE_TRANSLATION) {
+            ViewCompat.setTranslationY(mTarget, 0);  //位移交还给layout
+            if (mFooterView != null) {
+                ViewCompat.setTranslationY(mFooterView, 0);
+            }
+        }
+        mOffsetMode = mode;
+        // 平移模式下不再调用bringChildToFront，改为通过绘制顺序把头部画在最上面
+        setChildrenDrawingOrderEnabled(mode == OFFSET_MODE_TRANSLATION);
         requestLayout();
         invalidate();
     }
 
+    /**
+     * 设置是否合并拖动时的MOVE事件。开启后只记录最新的位置，在下一帧统一更新一次内容控件和头部，
+     * 高采样率的触摸屏上每帧只会调用一次{@link PLHeaderView#offsetChange(int, int)}
+     */
+    public void setCoalesceMoveEvents(boolean coalesce) {
+        mCoalesceMoveEvents = coalesce;
+        if (!coalesce) {
+            flushPendingOffset();
+        }
+    }
+
+    /**
+     * 立即应用还没有到帧的位置更新
+     */
+    private void flushPendingOffset() {
+        if (!mOffsetUpdatePending) {
+            return;
+        }
+        mOffsetUpdatePending = false;
+        removeCallbacks(mApplyPendingOffset);
+        if (mTarget != null) {
+            updateContentOffsetTop(mPendingTargetTop);
+        }
+    }
+
+    /**
+     * 设置拖动时的位置预测。开启后内容控件会按手指当前的速度提前移动，减少跟手的延迟
+     *
+     * @param predictionTime 预测时间（毫秒），0为关闭（默认），最大32毫秒
+     */
+    public void setTouchPrediction(int predictionTime) {
+        mGesture.setPredictionTime(predictionTime);
+    }
+
+    /**
+     * 设置返回动画的类型
+     *
+     * @param mode {@link #RETURN_ANIMATION_DECELERATE} 或 {@link #RETURN_ANIMATION_SPRING}
+     */
+    public void setReturnAnimationMode(int mode) {
+        mOffsetAnimator.setMode(mode);
+    }
+
+    /**
+     * 设置弹簧返回动画的参数，只对{@link #RETURN_ANIMATION_SPRING}有效
+     *
+     * @param stiffness    刚度，越大返回越快
+     * @param dampingRatio 阻尼比，1为不回弹，小于1会回弹
+     */
+    public void setReturnSpring(float stiffness, float dampingRatio) {
+        mOffsetAnimator.setSpring(stiffness, dampingRatio);
+    }
+
+//    private void animateOffsetToHeaderPosition(int from,
+//                                               AnimationListener listener) {
+//        if(mHeaderView == null){
+//            return;
+//        }
+//        mFrom = from;
+//        mAnimateToHeaderPosition.reset();
+//        mAnimateToHeaderPosition.setDuration(mMediumAnimationDuration);
+//        mAnimateToHeaderPosition.setAnimationListener(listener);
+//        mAnimateToHeaderPosition.setInterpolator(mDecelerateInterpolator);
+//        mHeaderView.startAnimation(mAnimateToHeaderPosition);
+//    }
+
+    /**
+     * Set the listener to be notified when a refresh is triggered via the swipe
+     * gesture.
+     */
+    public void setOnRefreshListener(OnRefreshListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 设置刷新会话的监听。和OnRefreshListener可以同时使用，会话结束（或超时）后头部自动返回，不需要再调用stopRefresh
+     */
+    public void setOnRefreshSessionListener(OnRefreshSessionListener listener) {
+        mRefreshSessionListener = listener;
+    }
+
+    /**
+     * 设置刷新的超时时间，超时后会话被取消，头部自动返回
+     *
+     * @param timeout 毫秒，小于等于0表示不超时（默认）
+     */
+    public void setRefreshTimeout(long timeout) {
+        mRefreshTimeout = timeout;
+    }
+
+    /**
+     * 设置刷新头部的显示时间
+     *
+     * @param minTime 最短显示时间（毫秒），刷新完成得太快时延迟到这个时间再返回，避免闪烁
+     * @param maxTime 最长显示时间（毫秒），超过后头部返回但会话不会被取消，小于等于0表示不限制
+     */
+    public void setRefreshSpinnerTime(long minTime, long maxTime) {
+        mMinSpinnerTime = minTime;
+        mMaxSpinnerTime = maxTime;
+    }
+
+    /**
+     * 设置状态恢复的监听。控件重建（例如屏幕旋转）时如果有正在进行的刷新或加载，会恢复对应的状态并回调这个监听，
+     * 不会再回调onRefresh/onLoad，在监听中重新关联之前的请求，避免重复请求。
+     * 没有设置时不恢复刷新和加载，头部直接回到初始位置；配置变化时正在进行的刷新会话也会被取消
+     */
+    public void setOnRefreshRestoreListener(OnRefreshRestoreListener listener) {
+        mRefreshRestoreListener = listener;
+    }
+
+    /**
+     * @return 正在进行的刷新会话，没有时返回null
+     */
+    public RefreshSession getRefreshSession() {
+        return mRefreshSession;
+    }
+
+    /**
+     * 会话完成，从RefreshSession切换到主线程后调用
+     */
+    void onRefreshSessionFinished(RefreshSession session) {
+        if (session != mRefreshSession) {
+            return;  //已经超时或者被取消
+        }
+        mRefreshSession = null;
+        removeCallbacks(mRefreshTimeoutAction);
+        stopRefresh();
+    }
+
+    private void cancelRefreshSession() {
+        removeCallbacks(mRefreshTimeoutAction);
+        final RefreshSession session = mRefreshSession;
+        if (session != null) {
+            mRefreshSession = null;
+            mRefreshGovernor.onCancel();
+            session.cancel();
+        }
+    }
+
+    /**
+     * 设置两次刷新之间的最小间隔（从上一次刷新完成开始计算，包括设备休眠的时间）。间隔内的下拉不会回调onRefresh
+     *
+     * @param minInterval        毫秒，小于等于0表示不限制（默认）
+     * @param animateWhenSkipped true则仍然显示一下刷新头部再返回，false则直接返回
+     */
+    public void setRefreshMinInterval(long minInterval, boolean animateWhenSkipped) {
+        mRefreshGovernor.setMinInterval(minInterval);
+        mAnimateSkippedRefresh = animateWhenSkipped;
+    }
+
+    /**
+     * 设置数据的有效期（从上一次刷新完成开始计算，包括设备休眠的时间）。控件attach、重新显示或者窗口回到前台时数据已经过期，
+     * 会在后台自动刷新（回调onRefresh但不显示头部）；有效期内的下拉只播放头部动画，不回调onRefresh
+     *
+     * @param ttl 毫秒，小于等于0表示不检查（默认）
+     */
+    public void setRefreshTtl(long ttl) {
+        mRefreshGovernor.setTtl(ttl);
+        scheduleFreshnessCheck();
+    }
+
+    /**
+     * 通知控件数据已经通过其他途径更新（例如首次加载），从现在开始计算有效期和最小间隔
+     */
+    public void markDataRefreshed() {
+        mRefreshGovernor.markRefreshed(SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * @return 数据是否已经过期，没有设置有效期时总是返回true
+     */
+    public boolean isDataStale() {
+        return mRefreshGovernor.isStale(SystemClock.elapsedRealtime());
+    }
+
+    /**
+     * 立即检查一次数据是否过期，过期时在后台刷新。适合在ViewPager切换到当前页这类控件本身可见性没有变化的场景调用
+     *
+     * @return 是否开始了新的刷新
+     */
+    public boolean revalidateIfStale() {
+        removeCallbacks(mFreshnessCheck);
+        if (mRefreshGovernor.getTtl() <= 0 || !mGesture.isRefreshEnabled() || isRefreshing()
+                || (mListener == null && mRefreshSessionListener == null)
+                || !mRefreshGovernor.isStale(SystemClock.elapsedRealtime())) {
+            return false;
+        }
+        if (mRefreshGovernor.onTrigger(SystemClock.elapsedRealtime()) != RefreshGovernor.DECISION_REFRESH) {
+            return false;  //已经在刷新，或者在最小间隔内
+        }
+        mStateSaved = false;
+        dispatchRefresh();
+        return true;
+    }
+
+    private void scheduleFreshnessCheck() {
+        removeCallbacks(mFreshnessCheck);
+        if (mRefreshGovernor.getTtl() > 0 && isShown()) {
+            post(mFreshnessCheck);  //attach、显示时监听可能还没有设置，放到下一个消息中检查
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (visibility == VISIBLE) {
+            mStateSaved = false;  //保存状态后又回到前台，之后的detach不再是配置变化
+            scheduleFreshnessCheck();  //Activity回到前台时控件本身的可见性没有变化
+        }
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        if (hasWindowFocus) {
+            mStateSaved = false;
+        }
+    }
+
+    /**
+     * @return 所在的Activity是否正在因为配置变化（例如屏幕旋转）而重建
+     */
+    @TargetApi(11)
+    private boolean isChangingConfigurations() {
+        if (android.os.Build.VERSION.SDK_INT < 11) {
+            return false;
+        }
+        Context context = getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return ((Activity) context).isChangingConfigurations();
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return false;
+    }
+
+    @Override
+    protected void onVisibilityChanged(View changedView, int visibility) {
+        super.onVisibilityChanged(changedView, visibility);
+        if (visibility == VISIBLE && mRefreshGovernor != null) {  //View的构造函数中也可能回调，这时字段还没有初始化
+            scheduleFreshnessCheck();
+        }
+    }
+
+    /**
+     * 通过代码触发一次刷新（显示头部并回调onRefresh），和下拉触发一样受最小间隔的限制，
+     * 刷新进行中时只会合并到当前刷新
+     *
+     * @return 是否开始了新的刷新
+     */
+    public boolean requestRefresh() {
+        if (!mGesture.isRefreshEnabled()) {
+            return false;
+        }
+        return startRefresh();
+    }
+
+    public void setRefreshEnabled(boolean refreshEnabled) {
+        if (mHeaderCreated && mHeaderView == null) {
+            return;  //没有头部，不能下拉刷新
+        }
+        mGesture.setRefreshEnabled(refreshEnabled);
+    }
+
+    public void setLoadEnabled(boolean loadEnabled) {
+        mLoadEnabled = loadEnabled;
+        updateLoadEnabled();
+    }
+
+    /**
+     * 设置上拉加载的监听，没有设置时不能上拉加载（没有人会调用stopLoad），也不会创建底部
+     */
+    public void setOnLoadListener(OnLoadListener listener) {
+        mLoadListener = listener;
+        updateLoadEnabled();
+    }
+
+    /**
+     * 设置底部控件，传null则去掉底部并关闭上拉加载
+     */
+    public void setPlFooterView(PLFooterView plFooterView) {
+        if (mFooterView != null) {
+            removeView(mFooterView);
+            mFooterView = null;
+        }
+        this.plFooterView = plFooterView;
+        mFooterCreated = false;
+        mFooterHeight = 0;
+        updateLoadEnabled();
+        requestLayout();
+    }
+
+    /**
+     * 设置预加载：内容控件滚动到距离底部不超过distance像素，或者剩余没有显示的item不超过itemCount个时，
+     * 不需要上拉就直接触发{@link OnLoadListener#onLoad()}。预加载时内容控件不会移动，底部只切换为加载状态
+     *
+     * @param distance  距离底部的像素，小于等于0表示不按距离判断
+     * @param itemCount 剩余的item数量（只对AbsListView和RecyclerView有效），小于等于0表示不按数量判断
+     */
+    public void setLoadPrefetch(int distance, int itemCount) {
+        mPrefetchDistance = distance;
+        mPrefetchItemCount = itemCount;
+        mPrefetchArmed = true;
+    }
+
+    private void checkLoadPrefetch() {
+        if (mTarget == null || mLoadListener == null || mLoadStatus != STATUS.NORMAL || !mGesture.isLoadEnabled()) {
+            return;
+        }
+        int remainingItems;
+        final boolean near = (mPrefetchItemCount > 0
+                && (remainingItems = ScrollEdgeProbes.remainingItems(mTarget)) >= 0
+                && remainingItems <= mPrefetchItemCount)
+                || (mPrefetchDistance > 0 && ScrollEdgeProbes.remainingScroll(mTarget) <= mPrefetchDistance);
+        if (!near) {
+            mPrefetchArmed = true;
+        } else if (mPrefetchArmed) {
+            mPrefetchArmed = false;
+            post(mPrefetchLoad);  //滚动回调在绘制流程中，监听里可能会修改数据，放到下一个消息中执行
+        }
+    }
+
+    /**
+     * 通知控件刷新状态已更改。 当通过滑动手势触发刷新时，不要调用此方法。
+     *
+     * @param refreshing Whether or not the view should show refresh progress.
+     */
+    public void setRefreshing(boolean refreshing) {
+        if (refreshing) {
+            ensureHeaderView();
+        }
+        if (isRefreshing() != refreshing) {
+            ensureTarget();
+            setRefreshStatus(refreshing ? STATUS.REFRESHING : STATUS.NORMAL);
+            removeCallbacks(mSettleHeaderAction);
+            if (refreshing) {
+                mSpinnerStartTime = SystemClock.uptimeMillis();
+                if (mMaxSpinnerTime > 0) {
+                    postDelayed(mSettleHeaderAction, mMaxSpinnerTime);
+                }
+            }
+        }
+        if(isRefreshing()){
+            mReturnToStartPosition.run();
+        }
+    }
+
+    /**
+     * 通知控件加载状态已更改。 当通过滑动手势触发加载时，不要调用此方法。
+     *
+     * @param loading
+     */
+    public void setLoading(boolean loading) {
+        if (isLoading() != loading) {
+            ensureTarget();
+            setLoadStatus(loading ? STATUS.LOADING : STATUS.NORMAL);
+        }
+        mFooterShown = loading;  //预加载中调用setLoading(true)时也露出底部
+        mReturnToStartPosition.run();  //加载中停在露出底部的位置，加载结束后返回初始位置
+//        if(mLoading){
+//        }else {
+//            mReturnToStartPosition.run();
+//        }
+    }
+
+    /**
+     * @return Whether the SwipeRefreshWidget is actively showing refresh
+     * progress.
+     */
+    public boolean isRefreshing() {
+        return mRefreshStatus == STATUS.REFRESHING;
+    }
+
+    public boolean isLoading() {
+        return mLoadStatus == STATUS.LOADING;
+    }
+
+    /**
+     * @return 顶部（刷新）的状态：NORMAL、LOOSENREFRESH或REFRESHING
+     */
+    public STATUS getRefreshStatus() {
+        return mRefreshStatus;
+    }
+
+    /**
+     * @return 底部（加载）的状态：NORMAL、LOOSENLOAD或LOADING
+     */
+    public STATUS getLoadStatus() {
+        return mLoadStatus;
+    }
+
+    /**
+     * @return 内容控件静止时的位置：露出底部的加载中停在刚好露出底部的位置，否则（包括预加载）为0
+     */
+    private int getRestOffset() {
+        return mFooterShown && mFooterView != null ? -mFooterHeight : 0;
+    }
+
+    /**
+     * 设置头部，相当于{@link #swapPlHeaderView(PLHeaderView, boolean)}不淡入淡出
+     */
+    public void setPlHeaderView(PLHeaderView plHeaderView) {
+        swapPlHeaderView(plHeaderView, false);
+    }
+
+
+    /**
+     * 替换头部。旧头部从控件中移除后放入缓存（可以放入HeaderViewPool的还给缓存池），之后换回同一个PLHeaderView实例时直接复用；
+     * 新头部只测量和布局它自己，不会重新测量内容控件
+     *
+     * @param header    新的头部
+     * @param crossFade 是否在两个头部之间淡入淡出（3.0以上），可以在刷新过程中使用
+     */
+    public void swapPlHeaderView(PLHeaderView header, boolean crossFade) {
+        if (header == null || (header == plHeaderView && !mHeaderReleased)) {
+            return;
+        }
+        if (mHeaderView == null) {  //还没有创建（或者正在后台创建），按新的头部重新创建
+            if (mPooledHeader != null) {  //attach时按旧头部取出的缓存不再需要
+                if (mHeaderViewPool != null) {
+                    mHeaderViewPool.release(mPooledHeader.header, mPooledHeader.view);
+                }
+                mPooledHeader = null;
+            }
+            mHeaderInflateGeneration++;  //丢弃后台创建的旧头部
+            mHeaderCreated = false;
+            plHeaderView = header;
+            mHeaderReleased = false;
+            if (isPoolable(header)) {  //这个实例之前创建的头部还在缓存池中时取回来，下一次onMeasure时添加
+                mPooledHeader = mHeaderViewPool.acquireCreatedBy(header);
+            }
+            requestLayout();
+            invalidate();
+            return;
+        }
+        finishHeaderFade();
+        final PLHeaderView oldHeader = plHeaderView;
+        final View oldView = mHeaderView;
+
+        // 只复用这个实例自己创建的头部，调用者传入的实例不会被替换
+        final HeaderViewPool.Holder holder = getRetiredHeaders(header).acquireCreatedBy(header);
+        plHeaderView = header;
+        mHeaderReleased = false;
+        final View newView = holder != null ? holder.view : header.createHeaderView(getContext(), this);
+
+        mHeaderView = null;
+        if (crossFade && newView != null && android.os.Build.VERSION.SDK_INT >= 12) {
+            mFadingHeader = oldHeader;
+            mFadingHeaderView = oldView;
+            mFadingHeaderStartPosition = mHeaderStartPosition;
+            ViewCompat.animate(oldView).alpha(0f).setDuration(mMediumAnimationDuration).withEndAction(mFinishHeaderFade);
+        } else {
+            removeViewInLayout(oldView);
+            getRetiredHeaders(oldHeader).release(oldHeader, oldView);
+            invalidate();
+        }
+        if (newView == null) {
+            mGesture.setRefreshEnabled(false);
+            return;
+        }
+        if (mFadingHeaderView != null) {
+            ViewCompat.setAlpha(newView, 0f);
+            ViewCompat.animate(newView).alpha(1f).setDuration(mMediumAnimationDuration);
+        }
+        LayoutParams params = newView.getLayoutParams();
+        if (params == null) {
+            params = generateDefaultLayoutParams();
+        }
+        // 不请求重新布局：布局模式下头部需要在最上面，加到最后；平移模式下由getChildDrawingOrder决定
+        addViewInLayout(newView, mOffsetMode == OFFSET_MODE_LAYOUT ? -1 : 0, params, true);
+        onHeaderViewAdded(newView);
+        if (mLaidOutTop == Integer.MIN_VALUE || mLastWidthMeasureSpec == -1) {
+            requestLayout();  //还没有完成过布局
+            return;
+        }
+        measureHeaderView(mLastWidthMeasureSpec, mLastHeightMeasureSpec);
+        layoutHeaderView(true, mLaidOutLeft, mLaidOutTop, mLaidOutWidth);
+        mLaidOutHeaderTop = mLaidOutTop - mHeaderStartPosition;
+        mLaidOutHeaderHeight = mHeaderHeight;
+        plHeaderView.offsetChange(mCurrentTargetOffsetTop, mCurrentTargetOffsetTop);  //同步当前的位置
+        invalidate();
+    }
+
+    /**
+     * 结束淡出：移除旧头部并放入缓存，新头部直接显示
+     */
+    private void finishHeaderFade() {
+        final View view = mFadingHeaderView;
+        if (view == null) {
+            return;
+        }
+        final PLHeaderView header = mFadingHeader;
+        mFadingHeaderView = null;
+        mFadingHeader = null;
+        ViewCompat.animate(view).cancel();
+        ViewCompat.setAlpha(view, 1f);  //复用时不需要再恢复
+        removeViewInLayout(view);
+        getRetiredHeaders(header).release(header, view);
+        if (mHeaderView != null) {
+            ViewCompat.animate(mHeaderView).cancel();
+            ViewCompat.setAlpha(mHeaderView, 1f);
+        }
+        invalidate();
+    }
+
+    private HeaderViewPool getRetiredHeaders() {
+        if (mRetiredHeaders == null) {
+            mRetiredHeaders = new HeaderViewPool(1);
+        }
+        return mRetiredHeaders;
+    }
+
+    /**
+     * @return 替换下来的头部放到哪里：可以放入共享缓存池的头部还给缓存池，其他的留在本控件
+     */
+    private HeaderViewPool getRetiredHeaders(PLHeaderView header) {
+        return isPoolable(header) ? mHeaderViewPool : getRetiredHeaders();
+    }
+
+    /**
+     * @return 头部是否可以放入共享缓存池。只有能按配置重新创建的头部才可以，attach、detach和替换头部都按这个判断
+     */
+    private boolean isPoolable(PLHeaderView header) {
+        return mHeaderViewPool != null && header instanceof HeaderViewPool.Recyclable;
+    }
 
     /**
      * 确保内容控件存在，否则抛出异常
@@ -358,10 +1535,11 @@ public class PLSwipeRefreshLayout extends ViewGroup {
                 return;
             }
             int maxChildCount = 1;
-            int targetIndex = 0;
             if (mHeaderView != null) {
                 maxChildCount++;
-                targetIndex++;
+            }
+            if (mFadingHeaderView != null) {
+                maxChildCount++;
             }
             if (mFooterView != null) {
                 maxChildCount++;
@@ -370,8 +1548,15 @@ public class PLSwipeRefreshLayout extends ViewGroup {
                 throw new IllegalStateException(
                         "SwipeRefreshLayout can only host one children");
             }
-            View child = getChildAt(targetIndex);
-            if (child.equals(mFooterView)) {
+            View child = null;
+            for (int i = 0; i < getChildCount(); i++) {  //头部、底部之外的就是内容控件
+                final View view = getChildAt(i);
+                if (view != mHeaderView && view != mFooterView && view != mFadingHeaderView) {
+                    child = view;
+                    break;
+                }
+            }
+            if (child == null) {
                 return;
             }
             mTarget = child;
@@ -384,15 +1569,19 @@ public class PLSwipeRefreshLayout extends ViewGroup {
 //            });
 
             mOriginalOffsetTop = mTarget.getTop() + getPaddingTop();
+            if (!mCustomScrollEdgeProbe) {
+                mScrollEdgeProbe = ScrollEdgeProbes.forTarget(mTarget);
+            }
+            mScrollEdgeDirty = true;
         }
-        if (mDistanceToTriggerSync == -1) {
+        if (mGesture.getDistanceToTriggerSync() == -1) {
             if (getParent() != null && ((View) getParent()).getHeight() > 0) {
                 final DisplayMetrics metrics = getResources()
                         .getDisplayMetrics();
-                mDistanceToTriggerSync = (int) Math.min(
+                mGesture.setDistanceToTriggerSync((int) Math.min(
                         ((View) getParent()).getHeight()
                                 * MAX_SWIPE_DISTANCE_FACTOR,
-                        REFRESH_TRIGGER_DISTANCE * metrics.density);
+                        REFRESH_TRIGGER_DISTANCE * metrics.density));
             }
         }
     }
@@ -400,31 +1589,117 @@ public class PLSwipeRefreshLayout extends ViewGroup {
     @Override
     protected void onLayout(boolean changed, int left, int top, int right,
                             int bottom) {
+        beginTrace(TRACE_LAYOUT);
+        try {
+            layoutChildren(changed);
+        } finally {
+            endTrace();
+        }
+    }
+
+    private void layoutChildren(boolean changed) {
+        if (mMetrics != null) {
+            mMetrics.layoutPasses++;
+        }
+        mScrollEdgeDirty = true;
         final int width = getMeasuredWidth();
         final int height = getMeasuredHeight();
-        if (getChildCount() == 0 || getChildCount() == 1) {
+        if (mTarget == null) {
+            ensureTarget();
+        }
+        if (mTarget == null) {
             return;
         }
-        final View child = getChildAt(1);
+        final View child = mTarget;
         final int childLeft = getPaddingLeft();
-        final int childTop = mCurrentTargetOffsetTop + getPaddingTop();
+        // 平移模式下位移保存在translationY中，布局位置固定不变
+        final int childTop = (mOffsetMode == OFFSET_MODE_TRANSLATION ? 0 : mCurrentTargetOffsetTop) + getPaddingTop();
         final int childWidth = width - getPaddingLeft() - getPaddingRight();
         final int childHeight = height - getPaddingTop() - getPaddingBottom();
+        final int headerTop = childTop - mHeaderStartPosition;
+        if (!changed && childLeft == mLaidOutLeft && childTop == mLaidOutTop
+                && childWidth == mLaidOutWidth && childHeight == mLaidOutHeight
+                && headerTop == mLaidOutHeaderTop && mHeaderHeight == mLaidOutHeaderHeight
+                && mFooterHeight == mLaidOutFooterHeight
+                && !child.isLayoutRequested()
+                && (mHeaderView == null || !mHeaderView.isLayoutRequested())
+                && (mFooterView == null || !mFooterView.isLayoutRequested())) {
+            return;  //位置没有变化，子控件也没有请求重新布局
+        }
+        mLaidOutLeft = childLeft;
+        mLaidOutTop = childTop;
+        mLaidOutWidth = childWidth;
+        mLaidOutHeight = childHeight;
+        mLaidOutHeaderTop = headerTop;
+        mLaidOutHeaderHeight = mHeaderHeight;
+        mLaidOutFooterHeight = mFooterHeight;
         child.layout(childLeft, childTop, childLeft + childWidth, childTop
                 + childHeight);
+        if (mRestoreOffsetPending) {  //恢复保存的位置（平移模式下需要重新设置translationY）并同步头部、底部
+            mRestoreOffsetPending = false;
+            setTargetOffsetTopAndBottom(mRestoredOffset - getTargetTop());
+        }
 
         //头部的位置，后面添加底部View时可以参考
+        if (mFadingHeaderView != null) {  //正在淡出的旧头部保持原来的尺寸
+            final int fadingTop = childTop - mFadingHeaderStartPosition;
+            mFadingHeaderView.layout(childLeft, fadingTop, childLeft + childWidth,
+                    fadingTop + mFadingHeaderView.getMeasuredHeight());
+        }
         if (mHeaderView != null) {
-            mHeaderView.layout(childLeft, childTop - mHeaderStartPosition, childLeft
-                    + childWidth, childTop - mHeaderStartPosition + mHeaderHeight);
-            plHeaderView.onLayout(changed, childLeft, childTop - mHeaderStartPosition, childLeft
-                    + childWidth, childTop - mHeaderStartPosition + mHeaderHeight);
-            bringChildToFront(mHeaderView);
+            layoutHeaderView(changed, childLeft, childTop, childWidth);
+            if (mOffsetMode == OFFSET_MODE_LAYOUT && getChildAt(getChildCount() - 1) != mHeaderView) {
+                bringChildToFront(mHeaderView);  //会再次请求布局，已经在最上面时不需要调用
+            }
+        }
+        if (mFooterView != null) {  //紧贴内容控件的底部，平移模式下translationY和内容控件保持一致
+            final int footerTop = childTop + childHeight;
+            mFooterView.layout(childLeft, footerTop, childLeft + childWidth, footerTop + mFooterHeight);
+            plFooterView.onLayout(changed, childLeft, footerTop, childLeft + childWidth, footerTop + mFooterHeight);
+        }
+    }
+
+    private void layoutHeaderView(boolean changed, int childLeft, int childTop, int childWidth) {
+        final int headerTop = childTop - mHeaderStartPosition;
+        mHeaderView.layout(childLeft, headerTop, childLeft + childWidth, headerTop + mHeaderHeight);
+        // 延迟、后台创建或者从缓存池取出的头部在控件第一次布局之后才添加，第一次布局也要按changed处理
+        changed |= mHeaderNeedsLayout;
+        mHeaderNeedsLayout = false;
+        beginTrace(TRACE_HEADER_LAYOUT);
+        try {
+            plHeaderView.onLayout(changed, childLeft, headerTop, childLeft + childWidth, headerTop + mHeaderHeight);
+        } finally {
+            endTrace();
+        }
+    }
+
+    @Override
+    protected int getChildDrawingOrder(int childCount, int i) {
+        // 只在平移模式下启用：子控件顺序不变，最后绘制头部
+        final int headerIndex = mHeaderView == null ? -1 : indexOfChild(mHeaderView);
+        if (headerIndex < 0) {
+            return i;
         }
+        if (i == childCount - 1) {
+            return headerIndex;
+        }
+        return i >= headerIndex ? i + 1 : i;
     }
 
     @Override
     public void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        beginTrace(TRACE_MEASURE);
+        try {
+            measureInternal(widthMeasureSpec, heightMeasureSpec);
+        } finally {
+            endTrace();
+        }
+    }
+
+    private void measureInternal(int widthMeasureSpec, int heightMeasureSpec) {
+        if (mMetrics != null) {
+            mMetrics.measurePasses++;
+        }
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         if (mTarget == null) {
             ensureTarget();
@@ -432,9 +1707,35 @@ public class PLSwipeRefreshLayout extends ViewGroup {
         if (mTarget == null) {
             return;
         }
-        if(mHeaderView == null){
-            createHeaderView(widthMeasureSpec,heightMeasureSpec);
+        final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
+        final boolean specsChanged = widthMeasureSpec != mLastWidthMeasureSpec
+                || heightMeasureSpec != mLastHeightMeasureSpec
+                || horizontalPadding != mLastHorizontalPadding
+                || verticalPadding != mLastVerticalPadding;
+        mLastWidthMeasureSpec = widthMeasureSpec;
+        mLastHeightMeasureSpec = heightMeasureSpec;
+        mLastHorizontalPadding = horizontalPadding;
+        mLastVerticalPadding = verticalPadding;
+
+        if (mHeaderInflateMode == HEADER_INFLATE_EAGER || mPooledHeader != null) {
+            createHeaderView();
         }
+        if (mHeaderView != null && (mHeaderNeedsMeasure || specsChanged || mHeaderView.isLayoutRequested())) {
+            measureHeaderView(widthMeasureSpec, heightMeasureSpec);
+        }
+        if (!mFooterCreated && canLoad()) {  //不会加载时不创建底部，不占用第一帧的时间
+            createFooterView();
+        }
+        if (mFooterView != null && (mFooterNeedsMeasure || specsChanged || mFooterView.isLayoutRequested())) {
+            mFooterNeedsMeasure = false;
+            measureChild(mFooterView, widthMeasureSpec, heightMeasureSpec);
+            mFooterHeight = mFooterView.getMeasuredHeight();
+        }
+        if (!specsChanged && mMeasuredTarget == mTarget && !mTarget.isLayoutRequested()) {
+            return;  //内容控件的尺寸不会变化
+        }
+        mMeasuredTarget = mTarget;
 //        if (mHeaderView != null) {
 //            measureChild(mHeaderView, widthMeasureSpec, heightMeasureSpec);
 //            mHeaderHeight = mHeaderView.getMeasuredHeight();
@@ -452,23 +1753,38 @@ public class PLSwipeRefreshLayout extends ViewGroup {
                         MeasureSpec.EXACTLY));
     }
 
+    /**
+     * 设置判断内容控件是否到达顶部（底部）的策略，传null则根据内容控件的类型自动选择
+     *
+     * @param probe
+     */
+    public void setScrollEdgeProbe(ScrollEdgeProbe probe) {
+        mCustomScrollEdgeProbe = probe != null;
+        mScrollEdgeProbe = probe != null || mTarget == null ? probe : ScrollEdgeProbes.forTarget(mTarget);
+        mScrollEdgeDirty = true;
+    }
+
+    /**
+     * 内容控件滚动后重新计算是否到达顶部（底部），否则直接返回缓存结果
+     */
+    private void updateScrollEdges() {
+        if (!mScrollEdgeDirty) {
+            return;
+        }
+        mScrollEdgeDirty = false;
+        if (mScrollEdgeProbe == null) {
+            mScrollEdgeProbe = ScrollEdgeProbes.forTarget(mTarget);
+        }
+        mCanChildScrollUp = mScrollEdgeProbe.canScrollUp(mTarget);
+        mCanChildScrollDown = mScrollEdgeProbe.canScrollDown(mTarget);
+    }
+
     /**
      * @return 内容控件是否可以向上滑动
      */
     private boolean canChildScrollUp() {
-        if (android.os.Build.VERSION.SDK_INT < 14) {
-            if (mTarget instanceof AbsListView) {
-                final AbsListView absListView = (AbsListView) mTarget;
-                return absListView.getChildCount() > 0
-                        && (absListView.getFirstVisiblePosition() > 0 || absListView
-                        .getChildAt(0).getTop() < absListView
-                        .getPaddingTop());
-            } else {
-                return mTarget.getScrollY() > 0;
-            }
-        } else {
-            return ViewCompat.canScrollVertically(mTarget, -1);
-        }
+        updateScrollEdges();
+        return mCanChildScrollUp;
     }
 
     /**
@@ -477,22 +1793,8 @@ public class PLSwipeRefreshLayout extends ViewGroup {
      * @return
      */
     private boolean canChildScrollDown() {
-        if (android.os.Build.VERSION.SDK_INT < 14) {
-            if (mTarget instanceof AbsListView) {
-                final AbsListView absListView = (AbsListView) mTarget;
-                View lastChild = absListView.getChildAt(absListView.getChildCount() - 1);
-                if (lastChild != null) {
-                    return (absListView.getLastVisiblePosition() == (absListView.getCount() - 1))
-                            && lastChild.getBottom() > absListView.getPaddingBottom();
-                } else {
-                    return false;
-                }
-            } else {
-                return mTarget.getHeight() - mTarget.getScrollY() > 0;
-            }
-        } else {
-            return ViewCompat.canScrollVertically(mTarget, 1);
-        }
+        updateScrollEdges();
+        return mCanChildScrollDown;
     }
 
     /**
@@ -503,6 +1805,15 @@ public class PLSwipeRefreshLayout extends ViewGroup {
      */
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
+        beginTrace(TRACE_INTERCEPT);
+        try {
+            return interceptTouchEventInternal(ev);
+        } finally {
+            endTrace();
+        }
+    }
+
+    private boolean interceptTouchEventInternal(MotionEvent ev) {
         if (mTarget == null) {
             ensureTarget();
         }
@@ -511,48 +1822,48 @@ public class PLSwipeRefreshLayout extends ViewGroup {
         }
         final int action = MotionEventCompat.getActionMasked(ev);
 
+        if (action == MotionEvent.ACTION_DOWN) {
+            mScrollEdgeDirty = true;  //新的一轮手势开始时重新计算一次，之后依赖滚动回调更新
+        }
         if (mReturningToStart && action == MotionEvent.ACTION_DOWN) {
             mReturningToStart = false;  //表示新的一轮手势滑动 ，mReturningToStart在动画开始时赋值，结束时不会赋值
         }
 
-        if (!isEnabled() || mReturningToStart || (canChildScrollUp() && canChildScrollDown()) || mStatus == STATUS.REFRESHING || mStatus == STATUS.LOADING) {
-            // 如果控件不可用 或者正在动画 或者子控件可以滑动 或者当前状态为刷新或者加载 则直接返回
+        if (!isEnabled() || mReturningToStart || mNestedScrollInProgress || (canChildScrollUp() && canChildScrollDown())
+                || (!mGesture.canPullDown() && !mGesture.canPullUp())) {
+            // 如果控件不可用 或者正在动画 或者正在嵌套滑动 或者子控件可以滑动 或者顶部和底部都不能再拉动 则直接返回
             return false;
         }
+        trackVelocity(ev);
 
         switch (action) {
             case MotionEvent.ACTION_DOWN:
-                mLastMotionY = mInitialMotionY = ev.getY();
-                mActivePointerId = MotionEventCompat.getPointerId(ev, 0);  //获取按下手指的id
-                mIsBeingDragged = false;
-                mIsBeingLoad = false;
+                mGesture.onDown(MotionEventCompat.getPointerId(ev, 0), ev.getY(), ev.getEventTime());  //记录按下手指的id
                 break;
 
             case MotionEvent.ACTION_MOVE:
-                if (mActivePointerId == INVALID_POINTER) {  //手指id不可用，说明已经抬起或者超出范围 下面的ACTION_UP或者ACTION_CANCEL会赋值为INVALID_POINTER
+                if (mGesture.getActivePointerId() == PullGesture.INVALID_POINTER) {  //手指id不可用，说明已经抬起或者超出范围 下面的ACTION_UP或者ACTION_CANCEL会赋值为INVALID_POINTER
                     Log.e(LOG_TAG,
                             "Got ACTION_MOVE event but don't have an active pointer id.");
                     return false;
                 }
 
                 final int pointerIndex = MotionEventCompat.findPointerIndex(ev,
-                        mActivePointerId);
+                        mGesture.getActivePointerId());
                 if (pointerIndex < 0) {
                     Log.e(LOG_TAG,
                             "Got ACTION_MOVE event but have an invalid active pointer id.");
                     return false;
                 }
 
-                final float y = MotionEventCompat.getY(ev, pointerIndex);
-                final float yDiff = y - mInitialMotionY;
-                if (yDiff > mTouchSlop && !canChildScrollUp() && isRefreshEnabled) {  //如果是向下滑动并且可以下拉则准备下拉刷新处理
-                    mLastMotionY = y;
-                    mIsBeingDragged = true;
-                    mIsBeingLoad = false;
-                } else if (-yDiff > mTouchSlop && !canChildScrollDown() && isLoadEnabled) { //如果是向上滑动并且可以上拉则准备上拉加载处理
-                    mLastMotionY = y;
-                    mIsBeingDragged = false;
-                    mIsBeingLoad = true;
+                // 批量的历史采样点也参与判断，越过拖动阈值的时间更准确
+                final int historySize = ev.getHistorySize();
+                boolean dragging = false;
+                for (int h = 0; h < historySize && !dragging; h++) {
+                    dragging = mGesture.onInterceptMove(ev.getHistoricalY(pointerIndex, h), ev.getHistoricalEventTime(h));
+                }
+                if (!dragging) {
+                    mGesture.onInterceptMove(MotionEventCompat.getY(ev, pointerIndex), ev.getEventTime());
                 }
                 break;
 
@@ -562,18 +1873,141 @@ public class PLSwipeRefreshLayout extends ViewGroup {
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
-                mIsBeingDragged = false;
-                mIsBeingLoad = false;
-                mActivePointerId = INVALID_POINTER;
+                mGesture.reset();
+                recycleVelocityTracker();
                 break;
         }
 
-        return mIsBeingDragged || mIsBeingLoad;
+        return mGesture.isDragging();
     }
 
     @Override
     public void requestDisallowInterceptTouchEvent(boolean b) {
-        // Nope.
+        // 5.0以下的AbsListView在自己滑动时会请求不拦截，这时忽略请求，否则无法下拉。
+        // 其他情况（例如内容控件中横向滑动的子控件）都要遵守，不能抢走它的手势
+        if (android.os.Build.VERSION.SDK_INT < 21 && mTarget instanceof AbsListView) {
+            // Nope.
+        } else {
+            super.requestDisallowInterceptTouchEvent(b);
+        }
+    }
+
+    // NestedScrollingParent
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return isEnabled() && !mReturningToStart
+                && (mGesture.canPullDown() || mGesture.canPullUp())
+                && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
+        // 同时通知外层的嵌套滑动父控件
+        startNestedScroll(axes & ViewCompat.SCROLL_AXIS_VERTICAL);
+        mGesture.onNestedScrollAccepted();
+        mNestedScrollInProgress = true;
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        if (mMetrics != null) {
+            mMetrics.moveEvents++;
+        }
+        // 已经拉出了头部（或底部）时，反方向的滑动优先用来收回，而不是交给内容控件滚动
+        consumed[1] = mGesture.onNestedPreScroll(dy);
+
+        // 剩余部分交给外层的嵌套滑动父控件
+        final int[] parentConsumed = mParentScrollConsumed;
+        if (dispatchNestedPreScroll(dx - consumed[0], dy - consumed[1], parentConsumed, null)) {
+            consumed[0] += parentConsumed[0];
+            consumed[1] += parentConsumed[1];
+        }
+    }
+
+    @Override
+    public void onNestedScroll(final View target, final int dxConsumed, final int dyConsumed,
+                               final int dxUnconsumed, final int dyUnconsumed) {
+        // 内容控件没有消费的距离直接用于下拉（或上拉），不再分发给外层父控件
+        mGesture.onNestedScroll(dyUnconsumed);
+    }
+
+    @Override
+    public void onStopNestedScroll(View target) {
+        mNestedScrollingParentHelper.onStopNestedScroll(target);
+        mNestedScrollInProgress = false;
+        mGesture.onStopNestedScroll(mReleaseVelocity);
+        mReleaseVelocity = 0;
+        // 通知外层的嵌套滑动父控件
+        stopNestedScroll();
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        // 嵌套滑动的fling速度以内容滚动方向为正，与手指方向相反
+        mReleaseVelocity = -velocityY;
+        // 头部（或底部）已经被拉出时吃掉惯性滑动，避免内容控件在松手后继续滚动
+        return mGesture.hasNestedPull() || dispatchNestedPreFling(velocityX, velocityY);
+    }
+
+    @Override
+    public boolean onNestedFling(View target, float velocityX, float velocityY, boolean consumed) {
+        return dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public int getNestedScrollAxes() {
+        return mNestedScrollingParentHelper.getNestedScrollAxes();
+    }
+
+    // NestedScrollingChild
+
+    @Override
+    public void setNestedScrollingEnabled(boolean enabled) {
+        mNestedScrollingChildHelper.setNestedScrollingEnabled(enabled);
+    }
+
+    @Override
+    public boolean isNestedScrollingEnabled() {
+        return mNestedScrollingChildHelper.isNestedScrollingEnabled();
+    }
+
+    @Override
+    public boolean startNestedScroll(int axes) {
+        return mNestedScrollingChildHelper.startNestedScroll(axes);
+    }
+
+    @Override
+    public void stopNestedScroll() {
+        mNestedScrollingChildHelper.stopNestedScroll();
+    }
+
+    @Override
+    public boolean hasNestedScrollingParent() {
+        return mNestedScrollingChildHelper.hasNestedScrollingParent();
+    }
+
+    @Override
+    public boolean dispatchNestedScroll(int dxConsumed, int dyConsumed, int dxUnconsumed,
+                                        int dyUnconsumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedScroll(dxConsumed, dyConsumed,
+                dxUnconsumed, dyUnconsumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedPreScroll(int dx, int dy, int[] consumed, int[] offsetInWindow) {
+        return mNestedScrollingChildHelper.dispatchNestedPreScroll(dx, dy, consumed, offsetInWindow);
+    }
+
+    @Override
+    public boolean dispatchNestedFling(float velocityX, float velocityY, boolean consumed) {
+        return mNestedScrollingChildHelper.dispatchNestedFling(velocityX, velocityY, consumed);
+    }
+
+    @Override
+    public boolean dispatchNestedPreFling(float velocityX, float velocityY) {
+        return mNestedScrollingChildHelper.dispatchNestedPreFling(velocityX, velocityY);
     }
 
     /**
@@ -584,25 +2018,36 @@ public class PLSwipeRefreshLayout extends ViewGroup {
      */
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
+        beginTrace(TRACE_TOUCH);
+        try {
+            return touchEventInternal(ev);
+        } finally {
+            endTrace();
+        }
+    }
+
+    private boolean touchEventInternal(MotionEvent ev) {
         final int action = MotionEventCompat.getActionMasked(ev);
         if (mReturningToStart && action == MotionEvent.ACTION_DOWN) {
             mReturningToStart = false;
         }
-        if (!isEnabled() || mReturningToStart || (canChildScrollUp() && canChildScrollDown()) || mStatus == STATUS.REFRESHING || mStatus == STATUS.LOADING) {
+        if (!isEnabled() || mReturningToStart || mNestedScrollInProgress || (canChildScrollUp() && canChildScrollDown())
+                || (!mGesture.canPullDown() && !mGesture.canPullUp())) {
             // Fail fast if we're not in a state where a swipe is possible
             return false;
         }
+        trackVelocity(ev);
         switch (action) {
             case MotionEvent.ACTION_DOWN:
-                mLastMotionY = mInitialMotionY = ev.getY();
-                mActivePointerId = MotionEventCompat.getPointerId(ev, 0);
-                mIsBeingDragged = false;
-                mIsBeingLoad = false;
+                mGesture.onDown(MotionEventCompat.getPointerId(ev, 0), ev.getY(), ev.getEventTime());
                 break;
 
             case MotionEvent.ACTION_MOVE:
+                if (mMetrics != null) {
+                    mMetrics.moveEvents++;
+                }
                 final int pointerIndex = MotionEventCompat.findPointerIndex(ev,
-                        mActivePointerId);
+                        mGesture.getActivePointerId());
 
                 if (pointerIndex < 0) {
                     Log.e(LOG_TAG,
@@ -610,82 +2055,17 @@ public class PLSwipeRefreshLayout extends ViewGroup {
                     return false;
                 }
 
-                final float y = MotionEventCompat.getY(ev, pointerIndex);
-
-                final float yDiff = y - mInitialMotionY;
-
-                if (!mIsBeingDragged && !mIsBeingLoad && yDiff > mTouchSlop && !canChildScrollUp() && isRefreshEnabled) {
-                    mIsBeingDragged = true;
-                    mIsBeingLoad = false;
-                } else if (!mIsBeingDragged && !mIsBeingLoad && -yDiff > mTouchSlop && !canChildScrollDown() && isLoadEnabled) {
-                    mIsBeingDragged = false;
-                    mIsBeingLoad = true;
-                }
-
-                if (mIsBeingDragged) {  //下拉处理
-                    // User velocity passed min velocity; trigger a refresh
-                    if (yDiff > mDistanceToTriggerSync) { //如果下拉距离大于临界值则进入松开下拉刷新状态
-                        if (mStatus == STATUS.NORMAL) {
-                            setStatus(STATUS.LOOSENREFRESH);
-                            if (mListener != null) {
-                                mListener.onLoose();
-                            }
-                        }
-                        updateContentOffsetTop((int) (yDiff));  //更新内容控件的位置
-                    } else {  //
-                        if (mStatus == STATUS.LOOSENREFRESH) {  //用户手指又往回滑动时恢复默认状态
-                            setStatus(STATUS.NORMAL);
-                            if (mListener != null) {
-                                mListener.onNormal();
-                            }
-                        }
-
-                        updateContentOffsetTop((int) (yDiff));  //更新内容控件的位置
-                        if (mLastMotionY > y && mTarget.getTop() == getPaddingTop()) {  //用户手指返回到初始位置时的处理。原因可以查看ACTION_CANCEL事件
-                            // If the user puts the view back at the top, we
-                            // don't need to. This shouldn't be considered
-                            // cancelling the gesture as the user can restart from
-                            // the top.
-                            removeCallbacks(mCancel);
-                        }
-                    }
-                    mLastMotionY = y;
-                } else if (mIsBeingLoad) {   //上拉处理
-                    // User velocity passed min velocity; trigger a refresh
-                    if (-yDiff > mDistanceToTriggerSync) {  //需要修改
-                        if (mStatus == STATUS.NORMAL) {
-                            setStatus(STATUS.LOOSENLOAD);
-                            if (mListener != null) {
-                                mListener.onLoose();
-                            }
-                        }
-
-                        updateContentOffsetTop((int) (yDiff));
-                    } else {
-                        if (mStatus == STATUS.LOOSENLOAD) {
-                            setStatus(STATUS.NORMAL);
-                            if (mListener != null) {
-                                mListener.onNormal();
-                            }
-                        }
-
-                        updateContentOffsetTop((int) (yDiff));
-                        if (mLastMotionY < y && mTarget.getBottom() == getPaddingBottom()) {
-                            // If the user puts the view back at the bottom, we
-                            // don't need to. This shouldn't be considered
-                            // cancelling the gesture as the user can restart from
-                            // the top.
-                            removeCallbacks(mCancel);
-                        }
-                    }
-                    mLastMotionY = y;
+                // 历史采样点只更新状态和速度，最后一个采样点再更新位置
+                final int historySize = ev.getHistorySize();
+                for (int h = 0; h < historySize; h++) {
+                    mGesture.onMoveSample(ev.getHistoricalY(pointerIndex, h), ev.getHistoricalEventTime(h));
                 }
+                mGesture.onMove(MotionEventCompat.getY(ev, pointerIndex), ev.getEventTime());  //下拉（上拉）处理
                 break;
 
             case MotionEventCompat.ACTION_POINTER_DOWN: {  //切换手指
                 final int index = MotionEventCompat.getActionIndex(ev);
-                mLastMotionY = MotionEventCompat.getY(ev, index);
-                mActivePointerId = MotionEventCompat.getPointerId(ev, index);
+                mGesture.onPointerDown(MotionEventCompat.getPointerId(ev, index), MotionEventCompat.getY(ev, index));
                 break;
             }
 
@@ -694,85 +2074,428 @@ public class PLSwipeRefreshLayout extends ViewGroup {
                 break;
 
             case MotionEvent.ACTION_UP:
-                if (mStatus == STATUS.LOOSENREFRESH) {
-                    startRefresh();
-                } else if (mStatus == STATUS.LOOSENLOAD) {
-                    startLoad();
-                } else {
-                    updatePositionTimeout();  //取消手势
+                mVelocityTracker.computeCurrentVelocity(1000, mMaximumVelocity);
+                final float velocity = VelocityTrackerCompat.getYVelocity(mVelocityTracker, mGesture.getActivePointerId());
+                if (mGestureRecording != null) {
+                    mGestureRecording.setReleaseVelocity(velocity);
                 }
-
-                mIsBeingDragged = false;
-                mIsBeingLoad = false;
-                mActivePointerId = INVALID_POINTER;
+                if (mMetrics != null) {  //事件时间是uptimeMillis，换算到nanoTime，包括事件分发到这里的延迟
+                    mMetrics.releaseTime = System.nanoTime()
+                            - (SystemClock.uptimeMillis() - ev.getEventTime()) * 1000000L;
+                }
+                mGesture.onUp(velocity, ev.getEventTime());
+                recycleVelocityTracker();
                 return false;
             case MotionEvent.ACTION_CANCEL:
                 updatePositionTimeout();  //用户手指滑动到控件范围外时调用（超过300毫秒取消手势）
 
-                mIsBeingDragged = false;
-                mIsBeingLoad = false;
-                mActivePointerId = INVALID_POINTER;
+                mGesture.reset();
+                recycleVelocityTracker();
                 return false;
         }
 
         return true;
     }
 
-    private void startRefresh() {
+    /**
+     * 把PullGesture的结果应用到控件上
+     */
+    private final PullGesture.Host mGestureHost = new PullGesture.Host() {
+        @Override
+        public boolean canScrollUp() {
+            return canChildScrollUp();
+        }
+
+        @Override
+        public boolean canScrollDown() {
+            return canChildScrollDown();
+        }
+
+        @Override
+        public void onDragStart(boolean pullDown) {
+            if (pullDown) {
+                ensureHeaderView();
+            }
+            if (mMetricsListener != null) {
+                beginMetrics();
+            }
+        }
+
+        @Override
+        public void onStateChange(int oldState, int newState) {
+            if (newState == PullGesture.STATE_LOOSEN_REFRESH || oldState == PullGesture.STATE_LOOSEN_REFRESH) {
+                setRefreshStatus(STATUS_VALUES[newState]);
+            } else {
+                setLoadStatus(STATUS_VALUES[newState]);
+            }
+            if (mListener != null) {
+                if (newState == PullGesture.STATE_NORMAL) {
+                    mListener.onNormal();  //用户手指又往回滑动时恢复默认状态
+                } else {
+                    mListener.onLoose();  //进入松开刷新（加载）状态
+                }
+            }
+        }
+
+        @Override
+        public void onOffsetChange(int targetTop) {
+            targetTop += getRestOffset();  //加载中从露出底部的位置开始下拉
+            if (!mCoalesceMoveEvents) {
+                updateContentOffsetTop(targetTop);
+                return;
+            }
+            mPendingTargetTop = targetTop;
+            if (!mOffsetUpdatePending) {
+                mOffsetUpdatePending = true;
+                ViewCompat.postOnAnimation(PLSwipeRefreshLayout.this, mApplyPendingOffset);
+            }
+        }
+
+        @Override
+        public void onBackToStart() {
+            // If the user puts the view back at the top, we
+            // don't need to. This shouldn't be considered
+            // cancelling the gesture as the user can restart from
+            // the top.
+            removeCallbacks(mCancel);
+        }
+
+        @Override
+        public void onRelease(int state, float velocity) {
+            flushPendingOffset();  //返回动画要从手指最后的位置开始
+            finishSpinner(state, velocity);
+        }
+    };
+
+    /**
+     * 手指抬起（或嵌套滑动结束）时根据当前状态决定刷新、加载还是返回初始位置
+     */
+    private void finishSpinner(int state, float velocity) {
+        if (mMetrics != null && mMetrics.releaseTime == 0) {  //嵌套滑动结束时没有ACTION_UP
+            mMetrics.releaseTime = System.nanoTime();
+        }
+        mReleaseVelocity = velocity;
+        if (state == PullGesture.STATE_LOOSEN_REFRESH) {
+            startRefresh();
+        } else if (state == PullGesture.STATE_LOOSEN_LOAD) {
+            startLoad(true);
+        } else {
+            mReleaseVelocity = 0;  //延时返回，不再使用松手速度
+            updatePositionTimeout();  //取消手势
+        }
+    }
+
+    private void trackVelocity(MotionEvent ev) {
+        if (mVelocityTracker == null) {
+            mVelocityTracker = VelocityTracker.obtain();
+        }
+        mVelocityTracker.addMovement(ev);
+    }
+
+    private void recycleVelocityTracker() {
+        if (mVelocityTracker != null) {
+            mVelocityTracker.recycle();
+            mVelocityTracker = null;
+        }
+    }
+
+    /**
+     * @return 是否开始了新的刷新（回调了onRefresh）
+     */
+    private boolean startRefresh() {
         removeCallbacks(mCancel);
+        mStateSaved = false;
+        final int decision = mRefreshGovernor.onTrigger(SystemClock.elapsedRealtime());
+        if (decision == RefreshGovernor.DECISION_SKIP && !mAnimateSkippedRefresh) {
+            if (mRefreshStatus != STATUS.NORMAL) {  //刚刚刷新过，直接返回初始位置
+                setRefreshStatus(STATUS.NORMAL);
+                mReturnToStartPosition.run();
+            }
+            return false;
+        }
         setRefreshing(true);
         mDisable = true;
+        if (decision == RefreshGovernor.DECISION_SKIP || decision == RefreshGovernor.DECISION_FRESH) {
+            // 只播放头部动画，不回调onRefresh
+            postDelayed(mSettleHeaderAction, Math.max(mMinSpinnerTime, mMediumAnimationDuration));
+            return false;
+        }
+        if (mMetrics != null) {
+            mMetrics.refreshed = true;
+            mMetrics.releaseToRefreshNanos = System.nanoTime() - mMetrics.releaseTime;
+        }
+        if (decision == RefreshGovernor.DECISION_COALESCE) {
+            return false;  //上一次刷新还没有完成（例如头部已经因为最长显示时间返回，或者在后台刷新），合并到当前刷新
+        }
+        dispatchRefresh();
+        return true;
+    }
+
+    /**
+     * 创建刷新会话并回调监听，调用前需要已经通过RefreshGovernor进入刷新中状态
+     */
+    private void dispatchRefresh() {
+        if (mRefreshSessionListener != null) {
+            mRefreshSession = new RefreshSession(this);
+            if (mRefreshTimeout > 0) {
+                postDelayed(mRefreshTimeoutAction, mRefreshTimeout);
+            }
+            mRefreshSessionListener.onRefresh(mRefreshSession);
+        }
         if (mListener != null) {
             mListener.onRefresh();
         }
     }
 
-    private void startLoad() {  //需要修改
+    /**
+     * @param showFooter false为预加载，只切换状态，不移动内容控件
+     */
+    private void startLoad(boolean showFooter) {
         removeCallbacks(mCancel);
-        setLoading(true);
+        if (showFooter) {
+            setLoading(true);
+        } else {
+            setLoadStatus(STATUS.LOADING);
+        }
         mDisable = true;
-
-//        if (mListener != null) {
-//            mListener.onRefresh();
-//        }
+        mPrefetchArmed = false;
+        if (showFooter && mMetrics != null) {
+            mMetrics.loaded = true;
+            mMetrics.releaseToLoadNanos = System.nanoTime() - mMetrics.releaseTime;
+        }
+        if (mLoadListener != null) {
+            mLoadListener.onLoad();
+        }
     }
 
+    /**
+     * 停止刷新。设置了最短显示时间并且还没有到时间时，延迟到最短显示时间再返回
+     */
     public void stopRefresh() {
+        mRefreshGovernor.onFinish(SystemClock.elapsedRealtime());  //数据已经刷新，从现在开始计算最小间隔
+        removeCallbacks(mSettleHeaderAction);
+        final long remaining = mSpinnerStartTime + mMinSpinnerTime - SystemClock.uptimeMillis();
+        if (isRefreshing() && remaining > 0) {
+            postDelayed(mSettleHeaderAction, remaining);
+            return;
+        }
+        settleHeader();
+    }
+
+    private void settleHeader() {
+        removeCallbacks(mSettleHeaderAction);
+        if (mMetrics != null) {
+            mMetrics.stopTime = System.nanoTime();
+        }
         setRefreshing(false);
+        maybeReportMetrics();
     }
 
     public void stopLoad() {
+        if (mMetrics != null) {
+            mMetrics.stopTime = System.nanoTime();
+        }
         setLoading(false);
+        maybeReportMetrics();
     }
 
+    /**
+     * @param targetTop 内容控件的目标位置，阻尼已经由PullGesture计算
+     */
     private void updateContentOffsetTop(int targetTop) {
-        final int currentTop = mTarget.getTop();
-        if (mIsBeingDragged) {
-            if (targetTop > mDistanceToTriggerSync) {  // 超过触发刷新的临界值时取 临界值+超过临界值的一半
-                targetTop = (int) mDistanceToTriggerSync + (int) (targetTop - mDistanceToTriggerSync) / 2;
-            } else if (targetTop < 0) {
-                targetTop = 0;
-            }
+        if (mOffsetAnimator.isRunning()) {  //手指接管时停止返回动画
+            mOffsetAnimator.cancel();
+            mAnimationEndAction = null;
+        }
+        setTargetOffsetTopAndBottom(targetTop - getTargetTop());
+    }
+
+    /**
+     * @return 内容控件当前的位置，平移模式下包含translationY
+     */
+    private int getTargetTop() {
+        if (mOffsetMode == OFFSET_MODE_TRANSLATION) {
+            return mTarget.getTop() + (int) ViewCompat.getTranslationY(mTarget);
+        }
+        return mTarget.getTop();
+    }
+
+    private void setTargetOffsetTopAndBottom(int offset) {
+        beginTrace(TRACE_OFFSET);
+        try {
+            offsetTargetInternal(offset);
+        } finally {
+            endTrace();
+        }
+    }
+
+    private void offsetTargetInternal(int offset) {
+        if (mOffsetMode == OFFSET_MODE_TRANSLATION) {
+            ViewCompat.setTranslationY(mTarget, ViewCompat.getTranslationY(mTarget) + offset);
         } else {
-            if (-targetTop > mDistanceToTriggerSync) {  //需要修改
-                targetTop = (int) -mDistanceToTriggerSync + (int) (targetTop + mDistanceToTriggerSync) / 2;
-            } else if (targetTop > 0) {
-                targetTop = 0;
+            mTarget.offsetTopAndBottom(offset);
+        }
+        mCurrentTargetOffsetTop = getTargetTop();
+        if (mMetrics != null) {
+            mMetrics.offsetUpdates++;
+        }
+        if (mFooterView != null) {
+            if (mOffsetMode == OFFSET_MODE_TRANSLATION) {
+                ViewCompat.setTranslationY(mFooterView, ViewCompat.getTranslationY(mTarget));
+            } else {
+                mFooterView.offsetTopAndBottom(offset);
+            }
+            plFooterView.offsetChange(mCurrentTargetOffsetTop, mCurrentTargetOffsetTop - offset);
+        }
+        if (mHeaderView != null) {
+            if (mMetrics != null) {
+                mMetrics.headerOffsetChanges++;
             }
+            mHeaderOffsetUpdates++;
+            plHeaderView.offsetChange(mCurrentTargetOffsetTop, mCurrentTargetOffsetTop - offset);
+        }
+        if (mOffsetMode == OFFSET_MODE_LAYOUT || mHeaderView == null) {
+            invalidate();  //平移模式下setTranslationY只更新RenderNode属性，只有需要绘制头部占位时才重绘父控件
         }
-        setTargetOffsetTopAndBottom(targetTop - currentTop);
     }
 
-    private void setTargetOffsetTopAndBottom(int offset) {
-        mTarget.offsetTopAndBottom(offset);
-        mCurrentTargetOffsetTop = mTarget.getTop();
-        plHeaderView.offsetChange(mCurrentTargetOffsetTop, mCurrentTargetOffsetTop - offset);
-        invalidate();
+    /**
+     * 修改顶部的状态，只通知头部
+     */
+    private void setRefreshStatus(STATUS status) {
+        if (mRefreshStatus != status) {
+            mStateChanges++;
+        }
+        mRefreshStatus = status;
+        mGesture.setRefreshing(status == STATUS.REFRESHING);
+        if (status != STATUS.LOOSENREFRESH && mGesture.getState() == PullGesture.STATE_LOOSEN_REFRESH) {
+            mGesture.setState(PullGesture.STATE_NORMAL);  //拖动已经结束
+        }
+        if (mHeaderView != null) {  //头部还没有创建时，创建后再同步状态
+            plHeaderView.statusChange(status);
+        }
+    }
+
+    /**
+     * 修改底部的状态，只通知底部
+     */
+    private void setLoadStatus(STATUS status) {
+        if (mLoadStatus != status) {
+            mStateChanges++;
+        }
+        mLoadStatus = status;
+        if (status != STATUS.LOADING) {
+            mFooterShown = false;
+        }
+        mGesture.setLoading(status == STATUS.LOADING);
+        if (status != STATUS.LOOSENLOAD && mGesture.getState() == PullGesture.STATE_LOOSEN_LOAD) {
+            mGesture.setState(PullGesture.STATE_NORMAL);
+        }
+        if (mFooterView != null) {
+            plFooterView.statusChange(status);
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.refreshing = isRefreshing();
+        ss.loading = isLoading();
+        ss.footerShown = mFooterShown;
+        // 拖动或者动画中的位置不保存，恢复到静止时的位置
+        ss.offset = mGesture.isDragging() || mOffsetAnimator.isRunning() || mTarget == null
+                ? mOriginalOffsetTop + getRestOffset() : getTargetTop();
+        ss.lastRefreshTime = mRefreshGovernor.getLastRefreshTime();
+        mStateSaved = true;
+        return ss;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        // 没有监听时没有人能结束恢复的刷新（加载），直接回到静止状态
+        final boolean restore = mRefreshRestoreListener != null;
+        // elapsedRealtime在同一次开机内有效（包括休眠时间），进程重建后仍然可以用来计算最小间隔和有效期
+        mRefreshGovernor.restore(ss.lastRefreshTime, restore && ss.refreshing);
+        if (!restore || (!ss.refreshing && !ss.loading)) {
+            return;  //静止状态，位置由布局决定
+        }
+        RefreshSession session = null;
+        if (ss.refreshing) {
+            ensureHeaderView();
+            setRefreshStatus(STATUS.REFRESHING);  //不播放动画，直接恢复到保存的位置
+            removeCallbacks(mSettleHeaderAction);
+            mSpinnerStartTime = SystemClock.uptimeMillis();
+            if (mMaxSpinnerTime > 0) {
+                postDelayed(mSettleHeaderAction, mMaxSpinnerTime);
+            }
+            if (mRefreshSessionListener != null) {
+                session = mRefreshSession = new RefreshSession(this);
+                if (mRefreshTimeout > 0) {
+                    postDelayed(mRefreshTimeoutAction, mRefreshTimeout);
+                }
+            }
+            mDisable = true;
+        }
+        if (ss.loading) {
+            setLoadStatus(STATUS.LOADING);
+            mFooterShown = ss.footerShown;
+            mPrefetchArmed = false;
+            mDisable = true;
+        }
+        mRestoredOffset = ss.offset;
+        mRestoreOffsetPending = true;
+        mLaidOutTop = Integer.MIN_VALUE;  //跳过布局缓存
+        requestLayout();
+        mRefreshRestoreListener.onRefreshRestored(session, ss.refreshing, ss.loading);
     }
 
-    private void setStatus(STATUS status) {
-        mStatus = status;
-        plHeaderView.statusChange(mStatus);
+    static class SavedState extends BaseSavedState {
+        boolean refreshing;
+        boolean loading;
+        boolean footerShown;
+        int offset;
+        long lastRefreshTime;  //SystemClock.elapsedRealtime，-1表示没有
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            refreshing = in.readInt() != 0;
+            loading = in.readInt() != 0;
+            footerShown = in.readInt() != 0;
+            offset = in.readInt();
+            lastRefreshTime = in.readLong();
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(refreshing ? 1 : 0);
+            out.writeInt(loading ? 1 : 0);
+            out.writeInt(footerShown ? 1 : 0);
+            out.writeInt(offset);
+            out.writeLong(lastRefreshTime);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
     }
 
     private void updatePositionTimeout() {  //取消手势
@@ -784,13 +2507,11 @@ public class PLSwipeRefreshLayout extends ViewGroup {
         final int pointerIndex = MotionEventCompat.getActionIndex(ev);
         final int pointerId = MotionEventCompat.getPointerId(ev, pointerIndex);
 
-        if (pointerId == mActivePointerId) {  //如果抬起的手指是活动的手指则将活动手指切换到第二手指进行滑动
-            // This was our active pointer going up. Choose a new active pointer and adjust accordingly.
-            final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
-            mLastMotionY = MotionEventCompat.getY(ev, newPointerIndex);
-            mActivePointerId = MotionEventCompat.getPointerId(ev,
-                    newPointerIndex);
-        }
+        //如果抬起的手指是活动的手指则将活动手指切换到第二手指进行滑动
+        // This was our active pointer going up. Choose a new active pointer and adjust accordingly.
+        final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
+        mGesture.onPointerUp(pointerId, MotionEventCompat.getPointerId(ev, newPointerIndex),
+                MotionEventCompat.getY(ev, newPointerIndex));
     }
 
     /**
@@ -806,20 +2527,40 @@ public class PLSwipeRefreshLayout extends ViewGroup {
     }
 
     /**
-     * Simple AnimationListener to avoid having to implement unneeded methods in
-     * AnimationListeners.
+     * 刷新会话的回调，在主线程调用。刷新完成后调用{@link RefreshSession#finish()}，
+     * 被取消时会回调{@link RefreshSession.OnCancelListener}
      */
-    private class BaseAnimationListener implements AnimationListener {
-        @Override
-        public void onAnimationStart(Animation animation) {
-        }
+    public interface OnRefreshSessionListener {
+        void onRefresh(RefreshSession session);
+    }
 
-        @Override
-        public void onAnimationEnd(Animation animation) {
-        }
+    /**
+     * 控件重建后恢复了正在进行的刷新或加载，在主线程调用
+     */
+    public interface OnRefreshRestoreListener {
+        /**
+         * @param session    恢复刷新时新建的会话（设置了OnRefreshSessionListener时），关联到之前的请求，完成后调用finish；
+         *                   否则为null，完成后调用{@link #stopRefresh()}
+         * @param refreshing 是否恢复了刷新
+         * @param loading    是否恢复了加载，完成后调用{@link #stopLoad()}
+         */
+        void onRefreshRestored(RefreshSession session, boolean refreshing, boolean loading);
+    }
 
-        @Override
-        public void onAnimationRepeat(Animation animation) {
-        }
+    /**
+     * 上拉加载（或预加载）的回调，加载完成后调用{@link #stopLoad()}
+     */
+    public interface OnLoadListener {
+        void onLoad();
+    }
+
+    /**
+     * 手势性能统计的回调
+     */
+    public interface OnGestureMetricsListener {
+        /**
+         * @param metrics 这次手势的统计结果，回调结束后会被重复使用
+         */
+        void onGestureMetrics(GestureMetrics metrics);
     }
 }
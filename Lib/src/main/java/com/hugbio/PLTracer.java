@@ -0,0 +1,24 @@
+package com.hugbio;
+
+/**
+ * 性能追踪。PLSwipeRefreshLayout在measure、layout、触摸分发、位移和返回动画的每一帧外面加上命名的区间，
+ * 并在区间结束前报告区间内的计数（头部位移次数、状态切换次数），用来在系统trace中定位卡顿。
+ * 只在主线程调用，区间严格嵌套，实现中不应该分配对象
+ */
+public interface PLTracer {
+
+    /**
+     * 开始一个区间，必须和{@link #endSection()}成对调用
+     */
+    void beginSection(String name);
+
+    /**
+     * 结束最近开始的区间
+     */
+    void endSection();
+
+    /**
+     * 报告当前区间内的计数，在endSection之前调用，只有计数不为0时才会调用
+     */
+    void counter(String name, int value);
+}
@@ -0,0 +1,87 @@
+package com.hugbio;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * 内置的PLTracer实现
+ */
+public final class PLTracers {
+
+    private PLTracers() {
+    }
+
+    /**
+     * 什么都不做，默认使用
+     */
+    public static final PLTracer NONE = new PLTracer() {
+        @Override
+        public void beginSection(String name) {
+        }
+
+        @Override
+        public void endSection() {
+        }
+
+        @Override
+        public void counter(String name, int value) {
+        }
+    };
+
+    /**
+     * @return 写入系统trace（systrace/Perfetto）的实现，4.3以下返回{@link #NONE}
+     */
+    public static PLTracer system() {
+        return Build.VERSION.SDK_INT >= 18 ? SystemTracer.INSTANCE : NONE;
+    }
+
+    @TargetApi(18)
+    private static final class SystemTracer implements PLTracer {
+
+        static final SystemTracer INSTANCE = new SystemTracer();
+
+        // Trace.setCounter需要API 29，这里把计数写成一个嵌套在当前区间内的瞬时区间，名称为 "计数名:值"。
+        // 为了不分配对象，计数名（按引用比较）和较小的值拼接后缓存起来
+        private static final int CACHED_NAMES = 8;
+        private static final int CACHED_VALUES = 64;
+        private final String[] mCounterNames = new String[CACHED_NAMES];
+        private final String[][] mSectionNames = new String[CACHED_NAMES][];
+
+        @Override
+        public void beginSection(String name) {
+            Trace.beginSection(name);
+        }
+
+        @Override
+        public void endSection() {
+            Trace.endSection();
+        }
+
+        @Override
+        public void counter(String name, int value) {
+            Trace.beginSection(counterSectionName(name, value));
+            Trace.endSection();
+        }
+
+        private String counterSectionName(String name, int value) {
+            if (value < 0 || value >= CACHED_VALUES) {
+                return name + ':' + value;
+            }
+            for (int i = 0; i < CACHED_NAMES; i++) {
+                if (mCounterNames[i] == null) {
+                    mCounterNames[i] = name;
+                    mSectionNames[i] = new String[CACHED_VALUES];
+                } else if (mCounterNames[i] != name) {
+                    continue;
+                }
+                final String[] sectionNames = mSectionNames[i];
+                if (sectionNames[value] == null) {
+                    sectionNames[value] = name + ':' + value;
+                }
+                return sectionNames[value];
+            }
+            return name + ':' + value;
+        }
+    }
+}
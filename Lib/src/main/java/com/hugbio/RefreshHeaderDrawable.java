@@ -0,0 +1,178 @@
+package com.hugbio;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.drawable.Animatable;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+
+/**
+ * DrawableHeaderView使用的Drawable，在一次draw中画出背景、箭头和进度圈，位置规则与NormalHeaderView一致：
+ * 背景的底部跟随内容控件的顶部，超过头部高度后整体跟随内容控件；刷新中进度圈固定在初始位置。
+ * 箭头和进度圈的Path在尺寸变化时计算，draw中不分配对象
+ */
+final class RefreshHeaderDrawable extends Drawable implements Animatable, Runnable {
+
+    // 与refreshview.xml中进度条的位置一致（dp）
+    private static final int INDICATOR_LEFT = 65;
+    private static final int INDICATOR_TOP = 6;
+    private static final int INDICATOR_SIZE = 37;
+    private static final float STROKE_WIDTH = 3;
+
+    private static final long FRAME_DELAY = 16;
+    private static final float DEGREES_PER_FRAME = 12;
+    private static final float SPINNER_SWEEP = 270;
+
+    private final float mIndicatorLeft;
+    private final float mIndicatorTop;
+    private final float mIndicatorSize;
+
+    private final Paint mBackgroundPaint = new Paint();
+    private final Paint mArrowPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mSpinnerPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Path mArrowPath = new Path();  //向下的箭头，坐标相对于进度圈区域的左上角
+    private final RectF mSpinnerBounds = new RectF();
+
+    private int mOffset;
+    private PLSwipeRefreshLayout.STATUS mStatus = PLSwipeRefreshLayout.STATUS.NORMAL;
+    private float mRotation;
+    private boolean mRunning;
+
+    RefreshHeaderDrawable(float density, int backgroundColor, int indicatorColor) {
+        mIndicatorLeft = INDICATOR_LEFT * density;
+        mIndicatorTop = INDICATOR_TOP * density;
+        mIndicatorSize = INDICATOR_SIZE * density;
+
+        mBackgroundPaint.setColor(backgroundColor);
+        mArrowPaint.setColor(indicatorColor);
+        mArrowPaint.setStyle(Paint.Style.FILL);
+        mSpinnerPaint.setColor(indicatorColor);
+        mSpinnerPaint.setStyle(Paint.Style.STROKE);
+        mSpinnerPaint.setStrokeCap(Paint.Cap.ROUND);
+        mSpinnerPaint.setStrokeWidth(STROKE_WIDTH * density);
+        buildIndicator(density);
+    }
+
+    private void buildIndicator(float density) {
+        final float size = mIndicatorSize;
+        final float center = size / 2;
+        final float shaft = STROKE_WIDTH * density / 2;
+        mArrowPath.reset();
+        mArrowPath.addRect(center - shaft, size * .15f, center + shaft, size * .6f, Path.Direction.CW);
+        mArrowPath.moveTo(size * .25f, size * .55f);
+        mArrowPath.lineTo(size * .75f, size * .55f);
+        mArrowPath.lineTo(center, size * .85f);
+        mArrowPath.close();
+
+        final float inset = STROKE_WIDTH * density;
+        mSpinnerBounds.set(inset, inset, size - inset, size - inset);
+    }
+
+    void setOffset(int offset) {
+        if (mOffset != offset) {
+            mOffset = offset;
+            invalidateSelf();
+        }
+    }
+
+    void setStatus(PLSwipeRefreshLayout.STATUS status) {
+        if (mStatus == status) {
+            return;
+        }
+        mStatus = status;
+        if (status == PLSwipeRefreshLayout.STATUS.REFRESHING) {
+            start();
+        } else {
+            stop();
+        }
+        invalidateSelf();
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        final boolean refreshing = mStatus == PLSwipeRefreshLayout.STATUS.REFRESHING;
+        if (mOffset <= 0 && !refreshing) {
+            return;  //上拉或者已经回到初始位置
+        }
+        final Rect bounds = getBounds();
+        final int height = bounds.height();
+        final int offset = Math.max(mOffset, 0);
+        final int contentShift = offset > height ? offset - height : 0;  //超过头部高度后整体跟随内容控件
+        final int bgTop = offset > height ? 0 : offset - height;
+        if (offset > 0) {
+            canvas.drawRect(bounds.left, bounds.top + bgTop + contentShift, bounds.right,
+                    bounds.top + bgTop + contentShift + height, mBackgroundPaint);
+        }
+
+        final float indicatorTop = refreshing ? mIndicatorTop : Math.min(bgTop, 0) + mIndicatorTop;
+        final int save = canvas.save();
+        canvas.translate(bounds.left + mIndicatorLeft, bounds.top + indicatorTop + contentShift);
+        final float center = mIndicatorSize / 2;
+        if (refreshing) {
+            canvas.rotate(mRotation, center, center);
+            canvas.drawArc(mSpinnerBounds, 0, SPINNER_SWEEP, false, mSpinnerPaint);
+        } else {
+            if (mStatus == PLSwipeRefreshLayout.STATUS.LOOSENREFRESH) {
+                canvas.rotate(180, center, center);  //松开刷新时箭头向上
+            }
+            canvas.drawPath(mArrowPath, mArrowPaint);
+        }
+        canvas.restoreToCount(save);
+    }
+
+    @Override
+    public void run() {
+        mRotation = (mRotation + DEGREES_PER_FRAME) % 360;
+        invalidateSelf();
+        if (mRunning) {
+            scheduleSelf(this, SystemClock.uptimeMillis() + FRAME_DELAY);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!mRunning) {
+            mRunning = true;
+            scheduleSelf(this, SystemClock.uptimeMillis() + FRAME_DELAY);
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (mRunning) {
+            mRunning = false;
+            unscheduleSelf(this);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        mBackgroundPaint.setAlpha(alpha);
+        mArrowPaint.setAlpha(alpha);
+        mSpinnerPaint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        mBackgroundPaint.setColorFilter(colorFilter);
+        mArrowPaint.setColorFilter(colorFilter);
+        mSpinnerPaint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return PixelFormat.TRANSLUCENT;
+    }
+}
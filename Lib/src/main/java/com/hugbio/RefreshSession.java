@@ -0,0 +1,95 @@
+package com.hugbio;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次刷新。由PLSwipeRefreshLayout创建并持有，刷新完成后在任意线程调用{@link #finish()}，
+ * 超时或者控件detach时会被取消，这时finish()不再有效
+ */
+public final class RefreshSession {
+
+    private static final int STATE_ACTIVE = 0;
+    private static final int STATE_FINISHED = 1;
+    private static final int STATE_CANCELLED = 2;
+
+    /**
+     * 刷新被取消（超时或者控件detach）时在主线程回调，用来停止正在进行的请求
+     */
+    public interface OnCancelListener {
+        void onCancel(RefreshSession session);
+    }
+
+    private static final Handler sMainHandler = new Handler(Looper.getMainLooper());
+
+    private final PLSwipeRefreshLayout mLayout;
+    private final long mStartTime;
+    private final AtomicInteger mState = new AtomicInteger(STATE_ACTIVE);
+    private OnCancelListener mOnCancelListener;
+
+    private final Runnable mDispatchFinish = new Runnable() {
+        @Override
+        public void run() {
+            mLayout.onRefreshSessionFinished(RefreshSession.this);
+        }
+    };
+
+    RefreshSession(PLSwipeRefreshLayout layout) {
+        mLayout = layout;
+        mStartTime = SystemClock.uptimeMillis();
+    }
+
+    /**
+     * 刷新完成，可以在任意线程调用，重复调用或者已经取消时忽略
+     */
+    public void finish() {
+        if (!mState.compareAndSet(STATE_ACTIVE, STATE_FINISHED)) {
+            return;
+        }
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            mDispatchFinish.run();
+        } else {
+            sMainHandler.post(mDispatchFinish);
+        }
+    }
+
+    /**
+     * 只能在主线程调用。已经取消时立即回调
+     */
+    public void setOnCancelListener(OnCancelListener listener) {
+        mOnCancelListener = listener;
+        if (listener != null && isCancelled()) {
+            listener.onCancel(this);
+        }
+    }
+
+    public boolean isActive() {
+        return mState.get() == STATE_ACTIVE;
+    }
+
+    public boolean isCancelled() {
+        return mState.get() == STATE_CANCELLED;
+    }
+
+    /**
+     * @return 开始刷新的时间（SystemClock.uptimeMillis）
+     */
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    /**
+     * 由控件在主线程调用
+     */
+    void cancel() {
+        if (!mState.compareAndSet(STATE_ACTIVE, STATE_CANCELLED)) {
+            return;
+        }
+        if (mOnCancelListener != null) {
+            mOnCancelListener.onCancel(this);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.hugbio;
+
+import android.view.View;
+
+/**
+ * 判断内容控件是否已经滑动到顶部（或底部）的策略。
+ * PLSwipeRefreshLayout在确定内容控件后只解析一次，并把结果缓存起来，只有内容控件滚动或重新布局后才会再次调用
+ */
+public interface ScrollEdgeProbe {
+
+    /**
+     * @param target 内容控件
+     * @return 内容控件是否还可以向上滑动（即没有到达顶部）
+     */
+    boolean canScrollUp(View target);
+
+    /**
+     * @param target 内容控件
+     * @return 内容控件是否还可以向下滑动（即没有到达底部）
+     */
+    boolean canScrollDown(View target);
+}
@@ -0,0 +1,215 @@
+package com.hugbio;
+
+import android.support.v4.view.ViewCompat;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.webkit.WebView;
+import android.widget.AbsListView;
+import android.widget.ScrollView;
+
+/**
+ * 内置的ScrollEdgeProbe实现，针对常见的内容控件直接读取其滚动状态，避免走通用的canScrollVertically
+ */
+public final class ScrollEdgeProbes {
+
+    // RecyclerView是可选依赖，没有引入时不能加载相关的类
+    private static final boolean HAS_RECYCLER_VIEW = hasClass("android.support.v7.widget.RecyclerView");
+
+    private ScrollEdgeProbes() {
+    }
+
+    /**
+     * 根据内容控件的类型选择最合适的实现
+     */
+    public static ScrollEdgeProbe forTarget(View target) {
+        if (target instanceof AbsListView) {
+            return ABS_LIST_VIEW;
+        }
+        if (HAS_RECYCLER_VIEW && RecyclerViewProbe.accepts(target)) {
+            return RecyclerViewProbe.INSTANCE;
+        }
+        if (target instanceof ScrollView) {
+            return SCROLL_VIEW;
+        }
+        if (target instanceof WebView) {
+            return WEB_VIEW;
+        }
+        return DEFAULT;
+    }
+
+    /**
+     * @return 内容控件底部还没有显示的item数量，不是列表时返回-1
+     */
+    static int remainingItems(View target) {
+        if (target instanceof AbsListView) {
+            final AbsListView absListView = (AbsListView) target;
+            return absListView.getCount() - absListView.getFirstVisiblePosition() - absListView.getChildCount();
+        }
+        if (HAS_RECYCLER_VIEW && RecyclerViewProbe.accepts(target)) {
+            return RecyclerViewProbe.remainingItems(target);
+        }
+        return -1;
+    }
+
+    /**
+     * @return 内容控件还可以向下滚动的距离（像素），无法计算时返回Integer.MAX_VALUE
+     */
+    @SuppressWarnings("deprecation")
+    static int remainingScroll(View target) {
+        if (target instanceof AbsListView) {
+            final AbsListView absListView = (AbsListView) target;
+            final int childCount = absListView.getChildCount();
+            if (childCount == 0) {
+                return 0;
+            }
+            if (absListView.getFirstVisiblePosition() + childCount < absListView.getCount()) {
+                return Integer.MAX_VALUE;  //最后一个item还没有显示，不知道具体距离
+            }
+            return Math.max(0, absListView.getChildAt(childCount - 1).getBottom()
+                    - (absListView.getHeight() - absListView.getPaddingBottom()));
+        }
+        if (HAS_RECYCLER_VIEW && RecyclerViewProbe.accepts(target)) {
+            return RecyclerViewProbe.remainingScroll(target);
+        }
+        if (target instanceof ScrollView) {
+            final ScrollView scrollView = (ScrollView) target;
+            if (scrollView.getChildCount() == 0) {
+                return 0;
+            }
+            return Math.max(0, scrollView.getChildAt(0).getHeight()
+                    - (scrollView.getHeight() - scrollView.getPaddingTop() - scrollView.getPaddingBottom())
+                    - scrollView.getScrollY());
+        }
+        if (target instanceof WebView) {
+            final WebView webView = (WebView) target;
+            final int contentHeight = (int) Math.floor(webView.getContentHeight() * webView.getScale());
+            return Math.max(0, contentHeight - webView.getScrollY() - webView.getHeight());
+        }
+        return ViewCompat.canScrollVertically(target, 1) ? Integer.MAX_VALUE : 0;
+    }
+
+    /**
+     * 通用实现，交给ViewCompat.canScrollVertically判断
+     */
+    public static final ScrollEdgeProbe DEFAULT = new ScrollEdgeProbe() {
+        @Override
+        public boolean canScrollUp(View target) {
+            return ViewCompat.canScrollVertically(target, -1);
+        }
+
+        @Override
+        public boolean canScrollDown(View target) {
+            return ViewCompat.canScrollVertically(target, 1);
+        }
+    };
+
+    public static final ScrollEdgeProbe ABS_LIST_VIEW = new ScrollEdgeProbe() {
+        @Override
+        public boolean canScrollUp(View target) {
+            final AbsListView absListView = (AbsListView) target;
+            return absListView.getChildCount() > 0
+                    && (absListView.getFirstVisiblePosition() > 0
+                    || absListView.getChildAt(0).getTop() < absListView.getPaddingTop());
+        }
+
+        @Override
+        public boolean canScrollDown(View target) {
+            final AbsListView absListView = (AbsListView) target;
+            final int childCount = absListView.getChildCount();
+            if (childCount == 0) {
+                return false;
+            }
+            return absListView.getFirstVisiblePosition() + childCount < absListView.getCount()
+                    || absListView.getChildAt(childCount - 1).getBottom()
+                    > absListView.getHeight() - absListView.getPaddingBottom();
+        }
+    };
+
+    public static final ScrollEdgeProbe SCROLL_VIEW = new ScrollEdgeProbe() {
+        @Override
+        public boolean canScrollUp(View target) {
+            return target.getScrollY() > 0;
+        }
+
+        @Override
+        public boolean canScrollDown(View target) {
+            final ScrollView scrollView = (ScrollView) target;
+            if (scrollView.getChildCount() == 0) {
+                return false;
+            }
+            final int range = scrollView.getChildAt(0).getHeight()
+                    - (scrollView.getHeight() - scrollView.getPaddingTop() - scrollView.getPaddingBottom());
+            return scrollView.getScrollY() < range;
+        }
+    };
+
+    public static final ScrollEdgeProbe WEB_VIEW = new ScrollEdgeProbe() {
+        @Override
+        public boolean canScrollUp(View target) {
+            return target.getScrollY() > 0;
+        }
+
+        @SuppressWarnings("deprecation")
+        @Override
+        public boolean canScrollDown(View target) {
+            final WebView webView = (WebView) target;
+            final int contentHeight = (int) Math.floor(webView.getContentHeight() * webView.getScale());
+            return webView.getScrollY() + webView.getHeight() < contentHeight;
+        }
+    };
+
+    /**
+     * 单独放在内部类中，保证没有引入RecyclerView时不会被加载
+     */
+    private static final class RecyclerViewProbe implements ScrollEdgeProbe {
+        static final RecyclerViewProbe INSTANCE = new RecyclerViewProbe();
+
+        static boolean accepts(View target) {
+            return target instanceof RecyclerView;
+        }
+
+        @Override
+        public boolean canScrollUp(View target) {
+            return ((RecyclerView) target).computeVerticalScrollOffset() > 0;
+        }
+
+        @Override
+        public boolean canScrollDown(View target) {
+            final RecyclerView recyclerView = (RecyclerView) target;
+            return recyclerView.computeVerticalScrollOffset()
+                    < recyclerView.computeVerticalScrollRange() - recyclerView.computeVerticalScrollExtent();
+        }
+
+        static int remainingItems(View target) {
+            final RecyclerView recyclerView = (RecyclerView) target;
+            final RecyclerView.Adapter adapter = recyclerView.getAdapter();
+            if (adapter == null) {
+                return -1;
+            }
+            final int childCount = recyclerView.getChildCount();
+            if (childCount == 0) {
+                return adapter.getItemCount();
+            }
+            final int lastPosition = recyclerView.getChildAdapterPosition(recyclerView.getChildAt(childCount - 1));
+            if (lastPosition == RecyclerView.NO_POSITION) {
+                return -1;
+            }
+            return adapter.getItemCount() - 1 - lastPosition;
+        }
+
+        static int remainingScroll(View target) {
+            final RecyclerView recyclerView = (RecyclerView) target;
+            return Math.max(0, recyclerView.computeVerticalScrollRange() - recyclerView.computeVerticalScrollExtent()
+                    - recyclerView.computeVerticalScrollOffset());
+        }
+    }
+
+    private static boolean hasClass(String className) {
+        try {
+            Class.forName(className);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.hugbio;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * 分配检查共用的控件和手势（JVM上的OffsetAllocationTest和真机上的TouchAllocationTest）：
+ * 在临界值上下来回拖动，覆盖内容控件和头部的偏移、状态切换和OnRefreshListener回调。
+ * 事件对象只在{@link #down()}时创建一次，{@link #move(int)}中只修改位置
+ */
+final class PullFixture {
+
+    static final class CountingListener implements PLSwipeRefreshLayout.OnRefreshListener {
+        int normal;
+        int loose;
+
+        @Override
+        public void onNormal() {
+            normal++;
+        }
+
+        @Override
+        public void onLoose() {
+            loose++;
+        }
+
+        @Override
+        public void onRefresh() {
+        }
+    }
+
+    final CountingListener listener = new CountingListener();
+    final PLSwipeRefreshLayout layout;
+    private MotionEvent mDown;
+    private MotionEvent mMove;
+
+    /**
+     * @param offsetMode {@link PLSwipeRefreshLayout#OFFSET_MODE_LAYOUT}或{@link PLSwipeRefreshLayout#OFFSET_MODE_TRANSLATION}
+     */
+    PullFixture(Context context, int offsetMode) {
+        layout = new PLSwipeRefreshLayout(context);
+        layout.addView(new View(context));
+        layout.setOnRefreshListener(listener);
+        layout.setOffsetMode(offsetMode);
+        layout.measure(View.MeasureSpec.makeMeasureSpec(720, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1280, View.MeasureSpec.EXACTLY));
+        layout.layout(0, 0, 720, 1280);
+    }
+
+    /**
+     * 按下手指，之后调用{@link #move(int)}
+     */
+    void down() {
+        final long downTime = SystemClock.uptimeMillis();
+        mDown = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, 360, 100, 0);
+        mMove = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_MOVE, 360, 100, 0);
+        layout.onTouchEvent(mDown);
+    }
+
+    void move(int i) {
+        final int phase = i % 200;
+        mMove.setLocation(360, 100 + (phase < 100 ? phase : 200 - phase) * 8);
+        layout.onTouchEvent(mMove);
+    }
+
+    /**
+     * @return 拖动是否来回越过了触发刷新的距离
+     */
+    boolean crossedTrigger() {
+        return listener.loose > 0 && listener.normal > 0;
+    }
+
+    void recycle() {
+        mDown.recycle();
+        mMove.recycle();
+    }
+}
@@ -0,0 +1,155 @@
+package com.hugbio;
+
+import android.content.Context;
+import android.os.Looper;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.accessibility.AccessibilityManager;
+
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.internal.Shadow;
+import org.robolectric.shadows.ShadowAccessibilityManager;
+import org.robolectric.shadows.ShadowViewGroup;
+
+/**
+ * OffsetAllocationTest使用的shadow。Robolectric 3.1自带的以下shadow每次调用都会分配，而真机上对应的实现不会，
+ * 不替换的话分配检查统计到的都是Robolectric自身的分配：
+ * AccessibilityManager.getInstance每次新建实例（View.offsetTopAndBottom每次都会调用），
+ * View.invalidate每次创建调用原方法用的代理，View.removeCallbacks每次创建迭代器遍历Scheduler，
+ * VelocityTracker.addMovement每次新建数组并装箱坐标
+ */
+final class AllocationFreeShadows {
+
+    private AllocationFreeShadows() {
+    }
+
+    /**
+     * 真机上AccessibilityManager是进程内单例，这里按application缓存
+     */
+    @Implements(AccessibilityManager.class)
+    public static class CachedAccessibilityManager extends ShadowAccessibilityManager {
+
+        private static AccessibilityManager sInstance;
+        private static Context sApplication;
+
+        @Implementation
+        public static AccessibilityManager getInstance(Context context) throws Exception {
+            //每个测试的application不同，换了application时重新创建
+            if (sInstance == null || sApplication != RuntimeEnvironment.application) {
+                sInstance = ShadowAccessibilityManager.getInstance(context);
+                sApplication = RuntimeEnvironment.application;
+            }
+            return sInstance;
+        }
+    }
+
+    /**
+     * 缓存调用原invalidate方法的代理；Scheduler中没有任务时removeCallbacks不需要遍历
+     */
+    @Implements(ViewGroup.class)
+    public static class AllocationFreeViewGroup extends ShadowViewGroup {
+
+        private View mDirectly;
+
+        @Override
+        @Implementation
+        public void invalidate() {
+            if (mDirectly == null) {
+                mDirectly = Shadow.directlyOn(realView, View.class);
+            }
+            mDirectly.invalidate();
+        }
+
+        @Override
+        @Implementation
+        public void removeCallbacks(Runnable callback) {
+            if (Shadows.shadowOf(Looper.getMainLooper()).getScheduler().size() > 0) {
+                super.removeCallbacks(callback);
+            }
+        }
+    }
+
+    /**
+     * 只记录第一个触点最近两次的位置，用它们计算速度
+     */
+    @Implements(VelocityTracker.class)
+    public static class TwoSampleVelocityTracker {
+
+        private int mSamples;
+        private long mLastTime;
+        private float mLastX;
+        private float mLastY;
+        private long mPrevTime;
+        private float mPrevX;
+        private float mPrevY;
+        private float mVelocityX;
+        private float mVelocityY;
+
+        @Implementation
+        public void clear() {
+            mSamples = 0;
+            mVelocityX = 0;
+            mVelocityY = 0;
+        }
+
+        @Implementation
+        public void addMovement(MotionEvent event) {
+            if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+                clear();
+            }
+            mPrevTime = mLastTime;
+            mPrevX = mLastX;
+            mPrevY = mLastY;
+            mLastTime = event.getEventTime();
+            mLastX = event.getX();
+            mLastY = event.getY();
+            mSamples++;
+        }
+
+        @Implementation
+        public void computeCurrentVelocity(int units) {
+            computeCurrentVelocity(units, Float.MAX_VALUE);
+        }
+
+        @Implementation
+        public void computeCurrentVelocity(int units, float maxVelocity) {
+            final long duration = mLastTime - mPrevTime;
+            if (mSamples < 2 || duration <= 0) {
+                mVelocityX = 0;
+                mVelocityY = 0;
+                return;
+            }
+            mVelocityX = clamp((mLastX - mPrevX) * units / duration, maxVelocity);
+            mVelocityY = clamp((mLastY - mPrevY) * units / duration, maxVelocity);
+        }
+
+        @Implementation
+        public float getXVelocity() {
+            return mVelocityX;
+        }
+
+        @Implementation
+        public float getYVelocity() {
+            return mVelocityY;
+        }
+
+        @Implementation
+        public float getXVelocity(int id) {
+            return mVelocityX;
+        }
+
+        @Implementation
+        public float getYVelocity(int id) {
+            return mVelocityY;
+        }
+
+        private static float clamp(float velocity, float maxVelocity) {
+            return Math.max(-maxVelocity, Math.min(maxVelocity, velocity));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.hugbio;
+
+import com.hugbio.core.AllocationMeter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 在JVM上检查MOVE事件经过控件（updateContentOffsetTop、setTargetOffsetTopAndBottom）、NormalHeaderView和
+ * OnRefreshListener时没有分配，任何一次分配都会让构建失败。按字节统计的方式和core模块的PullGestureAllocationTest相同，
+ * Robolectric自身会分配的shadow由{@link AllocationFreeShadows}替换。真机上的检查见androidTest中的TouchAllocationTest
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21, shadows = {
+        AllocationFreeShadows.CachedAccessibilityManager.class,
+        AllocationFreeShadows.AllocationFreeViewGroup.class,
+        AllocationFreeShadows.TwoSampleVelocityTracker.class})
+public class OffsetAllocationTest {
+
+    private static final int WARM_UP_ROUNDS = 2000;
+    private static final int MEASURED_ROUNDS = 1000;
+
+    private AllocationMeter mMeter;
+
+    @Before
+    public void setUp() {
+        mMeter = AllocationMeter.forCurrentThread();
+    }
+
+    @Test
+    public void layoutModeMoveDoesNotAllocate() {
+        assertMoveDoesNotAllocate(PLSwipeRefreshLayout.OFFSET_MODE_LAYOUT);
+    }
+
+    @Test
+    public void translationModeMoveDoesNotAllocate() {
+        assertMoveDoesNotAllocate(PLSwipeRefreshLayout.OFFSET_MODE_TRANSLATION);
+    }
+
+    @Test
+    public void headerOffsetChangeDoesNotAllocate() {
+        final NormalHeaderView header = new NormalHeaderView();
+        header.createHeaderView(RuntimeEnvironment.application,
+                new PLSwipeRefreshLayout(RuntimeEnvironment.application));
+        header.statusChange(PLSwipeRefreshLayout.STATUS.NORMAL);
+        final long allocated = mMeter.measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, new AllocationMeter.Step() {
+            @Override
+            public void run(int i) {
+                final int phase = i % 200;
+                final int offset = (phase < 100 ? phase : 200 - phase) * 4;
+                header.offsetChange(offset, offset - 4);
+            }
+        });
+        assertEquals("Bytes allocated by " + MEASURED_ROUNDS + " NormalHeaderView.offsetChange calls", 0, allocated);
+    }
+
+    private void assertMoveDoesNotAllocate(int offsetMode) {
+        final PullFixture fixture = new PullFixture(RuntimeEnvironment.application, offsetMode);
+        fixture.down();
+        final long allocated = mMeter.measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, new AllocationMeter.Step() {
+            @Override
+            public void run(int i) {
+                fixture.move(i);
+            }
+        });
+        fixture.recycle();
+        assertTrue("Gesture never crossed the trigger distance", fixture.crossedTrigger());
+        assertEquals("Bytes allocated by " + MEASURED_ROUNDS + " MOVE events", 0, allocated);
+    }
+}
@@ -0,0 +1,94 @@
+package com.hugbio.benchmark;
+
+import com.hugbio.core.PullGesture;
+
+/**
+ * 预先生成的合成手势事件序列，回放时只读数组，不产生分配
+ */
+final class GestureStream {
+
+    // 与MotionEvent的取值一致
+    static final int ACTION_DOWN = 0;
+    static final int ACTION_UP = 1;
+    static final int ACTION_MOVE = 2;
+
+    final int[] actions;
+    final int[] pointerIds;
+    final float[] ys;
+    final long[] times;
+    final float releaseVelocity;
+
+    private GestureStream(int size, float releaseVelocity) {
+        actions = new int[size];
+        pointerIds = new int[size];
+        ys = new float[size];
+        times = new long[size];
+        this.releaseVelocity = releaseVelocity;
+    }
+
+    int size() {
+        return actions.length;
+    }
+
+    /**
+     * 一次完整的下拉：按下、匀速拖动distance像素、松开
+     *
+     * @param moves      MOVE事件个数
+     * @param intervalMs 事件间隔（毫秒），例如240Hz触摸屏约为4
+     */
+    static GestureStream pull(float startY, float distance, int moves, long intervalMs) {
+        final GestureStream stream = new GestureStream(moves + 2, distance * 1000f / (moves * intervalMs));
+        long time = 0;
+        stream.set(0, ACTION_DOWN, startY, time);
+        for (int i = 1; i <= moves; i++) {
+            time += intervalMs;
+            stream.set(i, ACTION_MOVE, startY + distance * i / moves, time);
+        }
+        stream.set(moves + 1, ACTION_UP, startY + distance, time + intervalMs);
+        return stream;
+    }
+
+    /**
+     * 下拉超过临界值后又拉回去再松开，覆盖状态来回切换的路径
+     */
+    static GestureStream pullAndReturn(float startY, float distance, int moves, long intervalMs) {
+        final int half = moves / 2;
+        final GestureStream stream = new GestureStream(moves + 2, 0);
+        long time = 0;
+        stream.set(0, ACTION_DOWN, startY, time);
+        for (int i = 1; i <= moves; i++) {
+            time += intervalMs;
+            final float progress = i <= half ? (float) i / half : (float) (moves - i) / (moves - half);
+            stream.set(i, ACTION_MOVE, startY + distance * progress, time);
+        }
+        stream.set(moves + 1, ACTION_UP, startY, time + intervalMs);
+        return stream;
+    }
+
+    /**
+     * 回放整个序列
+     */
+    void replay(PullGesture gesture) {
+        final int size = actions.length;
+        for (int i = 0; i < size; i++) {
+            switch (actions[i]) {
+                case ACTION_DOWN:
+                    gesture.onDown(pointerIds[i], ys[i], times[i]);
+                    break;
+                case ACTION_MOVE:
+                    gesture.onMove(ys[i], times[i]);
+                    break;
+                case ACTION_UP:
+                    gesture.onUp(releaseVelocity, times[i]);
+                    break;
+            }
+        }
+    }
+
+    private void set(int index, int action, float y, long time) {
+        actions[index] = action;
+        pointerIds[index] = 0;
+        ys[index] = y;
+        times[index] = time;
+    }
+}
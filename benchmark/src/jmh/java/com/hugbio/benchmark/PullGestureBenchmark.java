@@ -0,0 +1,101 @@
+package com.hugbio.benchmark;
+
+import com.hugbio.core.PullGesture;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用合成的手势序列回放PullGesture，统计每个事件的耗时。配合gc分析器查看每个事件的分配
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PullGestureBenchmark {
+
+    private static final int MOVES = 120;
+    private static final int EVENTS = MOVES + 2;  //DOWN + MOVE + UP
+
+    private GestureStream mPull;
+    private GestureStream mPullAndReturn;
+    private CountingHost mHost;
+    private PullGesture mGesture;
+
+    /**
+     * 不做任何View操作，只累计回调结果，避免被JIT优化掉
+     */
+    static final class CountingHost implements PullGesture.Host {
+        PullGesture gesture;
+        long offsetSum;
+        int stateChanges;
+        int releases;
+
+        @Override
+        public boolean canScrollUp() {
+            return false;
+        }
+
+        @Override
+        public boolean canScrollDown() {
+            return false;
+        }
+
+        @Override
+        public void onDragStart(boolean pullDown) {
+        }
+
+        @Override
+        public void onStateChange(int oldState, int newState) {
+            stateChanges++;
+        }
+
+        @Override
+        public void onOffsetChange(int targetTop) {
+            offsetSum += targetTop;
+        }
+
+        @Override
+        public void onBackToStart() {
+        }
+
+        @Override
+        public void onRelease(int state, float velocity) {
+            releases++;
+            gesture.setState(PullGesture.STATE_NORMAL);  //模拟刷新立即结束，下一轮回放从默认状态开始
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        mPull = GestureStream.pull(100, 600, MOVES, 4);
+        mPullAndReturn = GestureStream.pullAndReturn(100, 600, MOVES, 4);
+        mHost = new CountingHost();
+        mGesture = new PullGesture(mHost);
+        mHost.gesture = mGesture;
+        mGesture.setTouchSlop(16);
+        mGesture.setDistanceToTriggerSync(300);
+        mGesture.setFlingTrigger(2500, .5f);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long pullToRefresh() {
+        mPull.replay(mGesture);
+        return mHost.offsetSum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(EVENTS)
+    public long pullAndReturn() {
+        mPullAndReturn.replay(mGesture);
+        return mHost.offsetSum + mHost.stateChanges;
+    }
+}
@@ -0,0 +1,101 @@
+package com.hugbio.benchmark;
+
+import com.hugbio.core.GestureRecording;
+import com.hugbio.core.PullGesture;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 回放录制的真实手势（core/src/test/resources/gestures），统计整个手势的耗时，除以事件数即为每个事件的耗时
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ReplayBenchmark {
+
+    @Param({"pull_refresh", "pull_and_return", "pull_load", "two_finger_pull", "scrolled_content"})
+    public String gesture;
+
+    private GestureRecording mRecording;
+    private ReplayHost mHost;
+    private PullGesture mGesture;
+
+    /**
+     * 按录制时内容控件的滚动状态回答，其余回调只累计结果
+     */
+    static final class ReplayHost implements PullGesture.Host {
+        PullGesture gesture;
+        GestureRecording recording;
+        int event;
+        long offsetSum;
+
+        @Override
+        public boolean canScrollUp() {
+            return (recording.getFlags(event) & GestureRecording.FLAG_CAN_SCROLL_UP) != 0;
+        }
+
+        @Override
+        public boolean canScrollDown() {
+            return (recording.getFlags(event) & GestureRecording.FLAG_CAN_SCROLL_DOWN) != 0;
+        }
+
+        @Override
+        public void onDragStart(boolean pullDown) {
+        }
+
+        @Override
+        public void onStateChange(int oldState, int newState) {
+        }
+
+        @Override
+        public void onOffsetChange(int targetTop) {
+            offsetSum += targetTop;
+        }
+
+        @Override
+        public void onBackToStart() {
+        }
+
+        @Override
+        public void onRelease(int state, float velocity) {
+            gesture.setState(PullGesture.STATE_NORMAL);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        final InputStream in = ReplayBenchmark.class.getResourceAsStream("/gestures/" + gesture + ".plgr");
+        try {
+            mRecording = GestureRecording.read(in);
+        } finally {
+            in.close();
+        }
+        mHost = new ReplayHost();
+        mGesture = new PullGesture(mHost);
+        mGesture.setTouchSlop(mRecording.getTouchSlop());
+        mGesture.setDistanceToTriggerSync(mRecording.getDistanceToTriggerSync());
+        mHost.gesture = mGesture;
+        mHost.recording = mRecording;
+    }
+
+    @Benchmark
+    public long replay() {
+        final int size = mRecording.size();
+        for (int i = 0; i < size; i++) {
+            mHost.event = i;
+            mRecording.replay(mGesture, i);
+        }
+        return mHost.offsetSum;
+    }
+}
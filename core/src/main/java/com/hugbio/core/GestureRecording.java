@@ -0,0 +1,359 @@
+package com.hugbio.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * 录制的触摸事件序列，可以保存为紧凑的二进制格式，再按照PLSwipeRefreshLayout的分发方式回放到{@link PullGesture}上，
+ * 用来在JVM中复现真实的手势、比较不同参数（touchSlop、触发距离）下的行为。
+ * <p>
+ * 每个事件包含动作、手指id、y坐标、事件时间、内容控件的滚动状态，MOVE事件还包含批量的历史采样点。
+ * 动作的取值与MotionEvent一致。非线程安全，只能在一个线程中使用
+ */
+public final class GestureRecording {
+
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+    public static final int ACTION_POINTER_DOWN = 5;
+    public static final int ACTION_POINTER_UP = 6;
+
+    public static final int FLAG_CAN_SCROLL_UP = 1;  //内容控件可以向上滑动（没有到达顶部）
+    public static final int FLAG_CAN_SCROLL_DOWN = 1 << 1;  //内容控件可以向下滑动（没有到达底部）
+
+    private static final int MAGIC = 0x504C4752;  //"PLGR"
+    private static final int VERSION = 1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int mTouchSlop;
+    private float mDistanceToTriggerSync = -1;
+
+    private int mSize;
+    private byte[] mActions = new byte[INITIAL_CAPACITY];
+    private byte[] mFlags = new byte[INITIAL_CAPACITY];
+    private int[] mPointerIds = new int[INITIAL_CAPACITY];
+    private float[] mYs = new float[INITIAL_CAPACITY];
+    private long[] mTimes = new long[INITIAL_CAPACITY];
+    // UP：松手速度
+    private float[] mValues = new float[INITIAL_CAPACITY];
+    // POINTER_UP：另一个手指的id
+    private int[] mOtherPointerIds = new int[INITIAL_CAPACITY];
+    // MOVE：历史采样点在mHistoryYs/mHistoryTimes中的范围
+    private int[] mHistoryStarts = new int[INITIAL_CAPACITY];
+    private int[] mHistoryCounts = new int[INITIAL_CAPACITY];
+
+    private int mHistorySize;
+    private int mPendingHistory;  //已经添加、等待下一个MOVE事件的历史采样点数量
+    private float[] mHistoryYs = new float[INITIAL_CAPACITY];
+    private long[] mHistoryTimes = new long[INITIAL_CAPACITY];
+
+    /**
+     * 记录录制时的参数，回放时默认使用
+     */
+    public void setConfig(int touchSlop, float distanceToTriggerSync) {
+        mTouchSlop = touchSlop;
+        mDistanceToTriggerSync = distanceToTriggerSync;
+    }
+
+    public int getTouchSlop() {
+        return mTouchSlop;
+    }
+
+    public float getDistanceToTriggerSync() {
+        return mDistanceToTriggerSync;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    public void clear() {
+        mSize = 0;
+        mHistorySize = 0;
+        mPendingHistory = 0;
+    }
+
+    // 录制
+
+    public void addDown(int pointerId, float y, long eventTime, int flags) {
+        add(ACTION_DOWN, pointerId, y, eventTime, flags);
+    }
+
+    /**
+     * 添加下一个MOVE事件的历史采样点，需要按时间顺序在{@link #addMove(float, long, int)}之前调用
+     */
+    public void addHistoricalSample(float y, long eventTime) {
+        if (mHistorySize == mHistoryYs.length) {
+            final int capacity = mHistorySize * 2;
+            mHistoryYs = Arrays.copyOf(mHistoryYs, capacity);
+            mHistoryTimes = Arrays.copyOf(mHistoryTimes, capacity);
+        }
+        mHistoryYs[mHistorySize] = y;
+        mHistoryTimes[mHistorySize] = eventTime;
+        mHistorySize++;
+        mPendingHistory++;
+    }
+
+    /**
+     * @param y 活动手指最新的y坐标
+     */
+    public void addMove(float y, long eventTime, int flags) {
+        final int index = add(ACTION_MOVE, 0, y, eventTime, flags);
+        mHistoryStarts[index] = mHistorySize - mPendingHistory;
+        mHistoryCounts[index] = mPendingHistory;
+        mPendingHistory = 0;
+    }
+
+    public void addPointerDown(int pointerId, float y, long eventTime, int flags) {
+        add(ACTION_POINTER_DOWN, pointerId, y, eventTime, flags);
+    }
+
+    /**
+     * @param pointerId      抬起的手指
+     * @param otherPointerId 剩下的另一个手指
+     * @param otherY         另一个手指的y坐标
+     */
+    public void addPointerUp(int pointerId, int otherPointerId, float otherY, long eventTime, int flags) {
+        final int index = add(ACTION_POINTER_UP, pointerId, otherY, eventTime, flags);  //y坐标保存另一个手指的
+        mOtherPointerIds[index] = otherPointerId;
+    }
+
+    /**
+     * 松手速度在事件处理后才能得到，需要时再调用{@link #setReleaseVelocity(float)}
+     */
+    public void addUp(float y, long eventTime, int flags) {
+        add(ACTION_UP, 0, y, eventTime, flags);
+    }
+
+    /**
+     * 设置最后一个UP事件的松手速度（像素/秒，向下为正）
+     */
+    public void setReleaseVelocity(float velocity) {
+        if (mSize > 0 && mActions[mSize - 1] == ACTION_UP) {
+            mValues[mSize - 1] = velocity;
+        }
+    }
+
+    public void addCancel(long eventTime, int flags) {
+        add(ACTION_CANCEL, 0, 0, eventTime, flags);
+    }
+
+    private int add(int action, int pointerId, float y, long eventTime, int flags) {
+        if (mSize == mActions.length) {
+            grow(mSize * 2);
+        }
+        final int index = mSize++;
+        mActions[index] = (byte) action;
+        mFlags[index] = (byte) flags;
+        mPointerIds[index] = pointerId;
+        mYs[index] = y;
+        mTimes[index] = eventTime;
+        mValues[index] = 0;
+        mOtherPointerIds[index] = 0;
+        mHistoryStarts[index] = 0;
+        mHistoryCounts[index] = 0;
+        if (action != ACTION_MOVE) {
+            mHistorySize -= mPendingHistory;  //没有对应MOVE事件的采样点丢弃
+            mPendingHistory = 0;
+        }
+        return index;
+    }
+
+    private void grow(int capacity) {
+        mActions = Arrays.copyOf(mActions, capacity);
+        mFlags = Arrays.copyOf(mFlags, capacity);
+        mPointerIds = Arrays.copyOf(mPointerIds, capacity);
+        mYs = Arrays.copyOf(mYs, capacity);
+        mTimes = Arrays.copyOf(mTimes, capacity);
+        mValues = Arrays.copyOf(mValues, capacity);
+        mOtherPointerIds = Arrays.copyOf(mOtherPointerIds, capacity);
+        mHistoryStarts = Arrays.copyOf(mHistoryStarts, capacity);
+        mHistoryCounts = Arrays.copyOf(mHistoryCounts, capacity);
+    }
+
+    // 读取
+
+    public int getAction(int index) {
+        return mActions[index];
+    }
+
+    public int getFlags(int index) {
+        return mFlags[index];
+    }
+
+    public long getEventTime(int index) {
+        return mTimes[index];
+    }
+
+    // 回放
+
+    /**
+     * 按PLSwipeRefreshLayout的分发方式回放一个事件：开始拖动之前走拦截阶段，开始拖动后走处理阶段。
+     * 内容控件的滚动状态由Host根据{@link #getFlags(int)}返回
+     */
+    public void replay(PullGesture gesture, int index) {
+        final long time = mTimes[index];
+        switch (mActions[index]) {
+            case ACTION_DOWN:
+                gesture.onDown(mPointerIds[index], mYs[index], time);
+                break;
+            case ACTION_MOVE: {
+                final int start = mHistoryStarts[index];
+                final int end = start + mHistoryCounts[index];
+                if (!gesture.isDragging()) {
+                    // 拦截阶段：按时间顺序检查每个采样点，开始拖动后这个事件被拦截，不再交给处理阶段
+                    for (int i = start; i < end; i++) {
+                        if (gesture.onInterceptMove(mHistoryYs[i], mHistoryTimes[i])) {
+                            return;
+                        }
+                    }
+                    gesture.onInterceptMove(mYs[index], time);
+                    return;
+                }
+                for (int i = start; i < end; i++) {
+                    gesture.onMoveSample(mHistoryYs[i], mHistoryTimes[i]);
+                }
+                gesture.onMove(mYs[index], time);
+                break;
+            }
+            case ACTION_POINTER_DOWN:
+                if (gesture.isDragging()) {  //拦截阶段不处理新按下的手指
+                    gesture.onPointerDown(mPointerIds[index], mYs[index]);
+                }
+                break;
+            case ACTION_POINTER_UP:
+                gesture.onPointerUp(mPointerIds[index], mOtherPointerIds[index], mYs[index]);
+                break;
+            case ACTION_UP:
+                gesture.onUp(mValues[index], time);
+                break;
+            case ACTION_CANCEL:
+                gesture.reset();
+                break;
+        }
+    }
+
+    /**
+     * 回放整个序列
+     */
+    public void replay(PullGesture gesture) {
+        for (int i = 0; i < mSize; i++) {
+            replay(gesture, i);
+        }
+    }
+
+    // 二进制格式：文件头（魔数、版本、touchSlop、触发距离、事件数），之后每个事件为
+    // 动作、滚动状态、手指id、与上一个事件的时间差（变长整数）、y坐标，MOVE附加历史采样点，
+    // UP附加松手速度，POINTER_UP附加另一个手指的id（y坐标为另一个手指的）
+
+    public void write(OutputStream out) throws IOException {
+        final DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(mTouchSlop);
+        data.writeFloat(mDistanceToTriggerSync);
+        writeVarInt(data, mSize);
+        long lastTime = mSize > 0 ? mTimes[0] : 0;
+        data.writeLong(lastTime);
+        for (int i = 0; i < mSize; i++) {
+            final int action = mActions[i];
+            data.writeByte(action);
+            data.writeByte(mFlags[i]);
+            writeVarInt(data, mPointerIds[i]);
+            writeVarInt(data, (int) (mTimes[i] - lastTime));
+            lastTime = mTimes[i];
+            data.writeFloat(mYs[i]);
+            if (action == ACTION_MOVE) {
+                final int start = mHistoryStarts[i];
+                final int count = mHistoryCounts[i];
+                writeVarInt(data, count);
+                for (int h = start; h < start + count; h++) {
+                    writeVarInt(data, (int) (mTimes[i] - mHistoryTimes[h]));  //历史采样点早于事件时间
+                    data.writeFloat(mHistoryYs[h]);
+                }
+            } else if (action == ACTION_UP) {
+                data.writeFloat(mValues[i]);
+            } else if (action == ACTION_POINTER_UP) {
+                writeVarInt(data, mOtherPointerIds[i]);
+            }
+        }
+        data.flush();
+    }
+
+    public static GestureRecording read(InputStream in) throws IOException {
+        final DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a gesture recording");
+        }
+        final int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported gesture recording version " + version);
+        }
+        final GestureRecording recording = new GestureRecording();
+        recording.setConfig(data.readInt(), data.readFloat());
+        final int size = readVarInt(data);
+        long time = data.readLong();
+        for (int i = 0; i < size; i++) {
+            final int action = data.readUnsignedByte();
+            final int flags = data.readUnsignedByte();
+            final int pointerId = readVarInt(data);
+            time += readVarInt(data);
+            final float y = data.readFloat();
+            switch (action) {
+                case ACTION_DOWN:
+                    recording.addDown(pointerId, y, time, flags);
+                    break;
+                case ACTION_MOVE: {
+                    final int count = readVarInt(data);
+                    for (int h = 0; h < count; h++) {
+                        final long sampleTime = time - readVarInt(data);
+                        recording.addHistoricalSample(data.readFloat(), sampleTime);
+                    }
+                    recording.addMove(y, time, flags);
+                    break;
+                }
+                case ACTION_POINTER_DOWN:
+                    recording.addPointerDown(pointerId, y, time, flags);
+                    break;
+                case ACTION_POINTER_UP:
+                    recording.addPointerUp(pointerId, readVarInt(data), y, time, flags);
+                    break;
+                case ACTION_UP:
+                    recording.addUp(y, time, flags);
+                    recording.setReleaseVelocity(data.readFloat());
+                    break;
+                case ACTION_CANCEL:
+                    recording.addCancel(time, flags);
+                    break;
+                default:
+                    throw new IOException("Unknown action " + action);
+            }
+        }
+        return recording;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
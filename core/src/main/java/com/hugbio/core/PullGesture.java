@@ -0,0 +1,529 @@
+package com.hugbio.core;
+
+/**
+ * 下拉刷新/上拉加载的手势状态机，不依赖Android，只接收基本类型的事件参数（手指id、y坐标、事件时间）。
+ * 负责手指切换、拖动判断、阻尼计算和状态切换，具体的View操作通过{@link Host}交给使用方。
+ * 状态值与PLSwipeRefreshLayout.STATUS的顺序一致。非线程安全，只能在一个线程中使用
+ */
+public final class PullGesture {
+
+    public static final int INVALID_POINTER = -1;
+
+    public static final int STATE_NORMAL = 0;   //默认状态
+    public static final int STATE_LOOSEN_REFRESH = 1;  //可以松开刷新状态
+    public static final int STATE_LOOSEN_LOAD = 2;   //可以松开加载状态
+    public static final int STATE_REFRESHING = 3;  //正在刷新状态
+    public static final int STATE_LOADING = 4;  //正在加载状态
+
+    private static final float DEFAULT_FLING_TRIGGER_DISTANCE_RATIO = .5f;
+    private static final int MAX_PREDICTION_TIME = 32;  //预测时间的上限（毫秒），过长的预测会明显超出手指
+    private static final float VELOCITY_SMOOTHING = .6f;  //新采样点在速度估计中的权重
+
+    /**
+     * 状态机的使用方，负责判断内容控件的滚动状态以及把结果应用到View上
+     */
+    public interface Host {
+        /**
+         * @return 内容控件是否可以向上滑动
+         */
+        boolean canScrollUp();
+
+        /**
+         * @return 内容控件是否可以向下滑动
+         */
+        boolean canScrollDown();
+
+        /**
+         * 开始拖动
+         *
+         * @param pullDown true为下拉，false为上拉
+         */
+        void onDragStart(boolean pullDown);
+
+        /**
+         * 拖动过程中状态发生变化（NORMAL和LOOSEN_REFRESH/LOOSEN_LOAD之间）
+         */
+        void onStateChange(int oldState, int newState);
+
+        /**
+         * 内容控件需要移动到的位置（已经计算过阻尼），正数为下拉，负数为上拉
+         */
+        void onOffsetChange(int targetTop);
+
+        /**
+         * 用户手指把内容控件拖回了初始位置
+         */
+        void onBackToStart();
+
+        /**
+         * 松开手指（或者嵌套滑动结束）
+         *
+         * @param state    松开时的状态，LOOSEN_REFRESH/LOOSEN_LOAD表示需要开始刷新/加载
+         * @param velocity 松开时的速度（像素/秒，向下为正）
+         */
+        void onRelease(int state, float velocity);
+    }
+
+    private final Host mHost;
+
+    private int mTouchSlop;
+    private float mDistanceToTriggerSync = -1;
+    private float mFlingTriggerVelocity;
+    private float mFlingTriggerDistanceRatio = DEFAULT_FLING_TRIGGER_DISTANCE_RATIO;
+    private boolean mRefreshEnabled = true;
+    private boolean mLoadEnabled = true;
+    // 顶部和底部各自独立：正在刷新时仍然可以上拉加载，正在加载时仍然可以下拉刷新
+    private boolean mRefreshing;
+    private boolean mLoading;
+
+    private int mState = STATE_NORMAL;
+    private float mInitialMotionY;
+    private float mLastMotionY;
+    private long mLastEventTime;
+    private int mActivePointerId = INVALID_POINTER;
+    private boolean mIsBeingDragged;  //标记开始下拉
+    private boolean mIsBeingLoad;  //标记开始上拉
+    private int mLastTargetTop;
+
+    // 根据相邻采样点（包括历史采样点）估计的速度，用于位置预测
+    private int mPredictionTime;
+    private float mSampleY;
+    private long mSampleTime;
+    private float mVelocity;
+
+    // 嵌套滑动时内容控件未消费的累计滑动距离，正数为下拉，负数为上拉
+    private float mTotalUnconsumed;
+
+    public PullGesture(Host host) {
+        mHost = host;
+    }
+
+    public void setTouchSlop(int touchSlop) {
+        mTouchSlop = touchSlop;
+    }
+
+    public int getTouchSlop() {
+        return mTouchSlop;
+    }
+
+    public void setDistanceToTriggerSync(float distance) {
+        mDistanceToTriggerSync = distance;
+    }
+
+    public float getDistanceToTriggerSync() {
+        return mDistanceToTriggerSync;
+    }
+
+    /**
+     * @param minVelocity      快速滑动触发的最小速度（像素/秒），小于等于0则关闭
+     * @param minDistanceRatio 滑动距离相对于临界值的最小比例
+     */
+    public void setFlingTrigger(float minVelocity, float minDistanceRatio) {
+        mFlingTriggerVelocity = minVelocity;
+        mFlingTriggerDistanceRatio = minDistanceRatio;
+    }
+
+    public void setRefreshEnabled(boolean enabled) {
+        mRefreshEnabled = enabled;
+    }
+
+    public boolean isRefreshEnabled() {
+        return mRefreshEnabled;
+    }
+
+    public void setLoadEnabled(boolean enabled) {
+        mLoadEnabled = enabled;
+    }
+
+    public boolean isLoadEnabled() {
+        return mLoadEnabled;
+    }
+
+    /**
+     * 正在刷新时不能再下拉，不影响上拉
+     */
+    public void setRefreshing(boolean refreshing) {
+        mRefreshing = refreshing;
+    }
+
+    public boolean isRefreshing() {
+        return mRefreshing;
+    }
+
+    /**
+     * 正在加载时不能再上拉，不影响下拉
+     */
+    public void setLoading(boolean loading) {
+        mLoading = loading;
+    }
+
+    public boolean isLoading() {
+        return mLoading;
+    }
+
+    /**
+     * @return 现在是否可以开始下拉
+     */
+    public boolean canPullDown() {
+        return mRefreshEnabled && !mRefreshing;
+    }
+
+    /**
+     * @return 现在是否可以开始上拉
+     */
+    public boolean canPullUp() {
+        return mLoadEnabled && !mLoading;
+    }
+
+    /**
+     * 外部直接修改拖动状态，不会回调Host
+     */
+    public void setState(int state) {
+        mState = state;
+    }
+
+    public int getState() {
+        return mState;
+    }
+
+    public int getActivePointerId() {
+        return mActivePointerId;
+    }
+
+    public boolean isDragging() {
+        return mIsBeingDragged || mIsBeingLoad;
+    }
+
+    public boolean isPullingDown() {
+        return mIsBeingDragged;
+    }
+
+    public boolean isPullingUp() {
+        return mIsBeingLoad;
+    }
+
+    public long getLastEventTime() {
+        return mLastEventTime;
+    }
+
+    /**
+     * 设置位置预测的时间。开启后内容控件会移动到按当前速度预测的predictionTime毫秒后的位置，减少跟手的延迟，
+     * 状态切换和松手判断仍然使用真实位置
+     *
+     * @param predictionTime 预测时间（毫秒），0为关闭，最大{@value #MAX_PREDICTION_TIME}
+     */
+    public void setPredictionTime(int predictionTime) {
+        mPredictionTime = Math.max(0, Math.min(predictionTime, MAX_PREDICTION_TIME));
+    }
+
+    /**
+     * @return 根据最近的采样点估计的速度（像素/秒，向下为正）
+     */
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    // 触摸事件
+
+    public void onDown(int pointerId, float y, long eventTime) {
+        mLastMotionY = mInitialMotionY = y;
+        mActivePointerId = pointerId;  //按下手指的id
+        mLastEventTime = eventTime;
+        resetVelocity(y, eventTime);
+        mIsBeingDragged = false;
+        mIsBeingLoad = false;
+    }
+
+    /**
+     * 拦截阶段的MOVE事件，只判断是否开始拖动
+     *
+     * @param y 活动手指的y坐标
+     * @return 是否已经开始拖动
+     */
+    public boolean onInterceptMove(float y, long eventTime) {
+        mLastEventTime = eventTime;
+        trackSample(y, eventTime);
+        final float yDiff = y - mInitialMotionY;
+        if (yDiff > mTouchSlop && canPullDown() && !mHost.canScrollUp()) {  //如果是向下滑动并且可以下拉则准备下拉刷新处理
+            mLastMotionY = y;
+            startDrag(true);
+        } else if (-yDiff > mTouchSlop && canPullUp() && !mHost.canScrollDown()) { //如果是向上滑动并且可以上拉则准备上拉加载处理
+            mLastMotionY = y;
+            startDrag(false);
+        }
+        return isDragging();
+    }
+
+    /**
+     * 处理阶段的MOVE事件，开始拖动后更新状态和位置
+     *
+     * @param y 活动手指的y坐标
+     */
+    public void onMove(float y, long eventTime) {
+        move(y, eventTime, true);
+    }
+
+    /**
+     * MOVE事件中批量的历史采样点，需要按时间顺序在{@link #onMove(float, long)}之前调用。
+     * 只用于拖动判断、临界值判断和速度估计，不会回调{@link Host#onOffsetChange(int)}
+     *
+     * @param y         活动手指在该采样点的y坐标
+     * @param eventTime 该采样点的时间
+     */
+    public void onMoveSample(float y, long eventTime) {
+        move(y, eventTime, false);
+    }
+
+    private void move(float y, long eventTime, boolean applyOffset) {
+        mLastEventTime = eventTime;
+        trackSample(y, eventTime);
+        final float yDiff = y - mInitialMotionY;
+        if (!isDragging()) {
+            if (yDiff > mTouchSlop && canPullDown() && !mHost.canScrollUp()) {
+                startDrag(true);
+            } else if (-yDiff > mTouchSlop && canPullUp() && !mHost.canScrollDown()) {
+                startDrag(false);
+            }
+        }
+        if (!isDragging()) {
+            return;
+        }
+        pull(yDiff, applyOffset);
+        // 用户手指返回到初始位置时的处理
+        if (mLastTargetTop == 0 && (mIsBeingDragged ? mLastMotionY > y : mLastMotionY < y)) {
+            mHost.onBackToStart();
+        }
+        mLastMotionY = y;
+    }
+
+    /**
+     * 新的手指按下，切换为活动手指
+     */
+    public void onPointerDown(int pointerId, float y) {
+        mLastMotionY = y;
+        mActivePointerId = pointerId;
+        resetVelocity(y, mLastEventTime);
+    }
+
+    /**
+     * 有手指抬起。如果抬起的是活动手指则切换到另一个手指
+     *
+     * @param pointerId      抬起的手指
+     * @param otherPointerId 剩下的另一个手指
+     * @param otherY         另一个手指的y坐标
+     */
+    public void onPointerUp(int pointerId, int otherPointerId, float otherY) {
+        if (pointerId == mActivePointerId) {
+            mLastMotionY = otherY;
+            mActivePointerId = otherPointerId;
+            resetVelocity(otherY, mLastEventTime);
+        }
+    }
+
+    /**
+     * 手指抬起
+     *
+     * @param velocity 活动手指抬起时的速度（像素/秒，向下为正）
+     */
+    public void onUp(float velocity, long eventTime) {
+        mLastEventTime = eventTime;
+        if (isDragging()) {
+            release(mLastMotionY - mInitialMotionY, velocity);
+        }
+        reset();
+    }
+
+    /**
+     * 手势结束或者取消，清除拖动状态
+     */
+    public void reset() {
+        mIsBeingDragged = false;
+        mIsBeingLoad = false;
+        mActivePointerId = INVALID_POINTER;
+    }
+
+    // 嵌套滑动
+
+    public void onNestedScrollAccepted() {
+        mTotalUnconsumed = 0;
+        mIsBeingDragged = false;
+        mIsBeingLoad = false;
+        mVelocity = 0;  //嵌套滑动不做位置预测
+    }
+
+    /**
+     * 已经拉出头部（或底部）时，反方向的滑动优先用来收回
+     *
+     * @return 消费的距离
+     */
+    public int onNestedPreScroll(int dy) {
+        int consumed = 0;
+        if (dy > 0 && mTotalUnconsumed > 0) {
+            if (dy > mTotalUnconsumed) {
+                consumed = (int) mTotalUnconsumed;
+                mTotalUnconsumed = 0;
+            } else {
+                consumed = dy;
+                mTotalUnconsumed -= dy;
+            }
+            pull(mTotalUnconsumed, true);
+        } else if (dy < 0 && mTotalUnconsumed < 0) {
+            if (dy < mTotalUnconsumed) {
+                consumed = (int) mTotalUnconsumed;
+                mTotalUnconsumed = 0;
+            } else {
+                consumed = dy;
+                mTotalUnconsumed -= dy;
+            }
+            pull(mTotalUnconsumed, true);
+        }
+        return consumed;
+    }
+
+    /**
+     * 内容控件没有消费的距离直接用于下拉（或上拉）
+     */
+    public void onNestedScroll(int dyUnconsumed) {
+        if (dyUnconsumed < 0 && canPullDown() && mTotalUnconsumed >= 0 && !mHost.canScrollUp()) {
+            if (!mIsBeingDragged) {
+                startDrag(true);
+            }
+            mTotalUnconsumed -= dyUnconsumed;
+            pull(mTotalUnconsumed, true);
+        } else if (dyUnconsumed > 0 && canPullUp() && mTotalUnconsumed <= 0 && !mHost.canScrollDown()) {
+            if (!mIsBeingLoad) {
+                startDrag(false);
+            }
+            mTotalUnconsumed -= dyUnconsumed;
+            pull(mTotalUnconsumed, true);
+        }
+    }
+
+    /**
+     * @return 是否已经通过嵌套滑动拉出了头部（或底部）
+     */
+    public boolean hasNestedPull() {
+        return mTotalUnconsumed != 0;
+    }
+
+    /**
+     * @param velocity 松开时的速度（像素/秒，向下为正）
+     */
+    public void onStopNestedScroll(float velocity) {
+        if (isDragging()) {
+            release(mTotalUnconsumed, velocity);
+        }
+        mTotalUnconsumed = 0;
+        reset();
+    }
+
+    // 内部实现
+
+    private void startDrag(boolean pullDown) {
+        mIsBeingDragged = pullDown;
+        mIsBeingLoad = !pullDown;
+        mHost.onDragStart(pullDown);
+    }
+
+    /**
+     * 根据累计滑动距离更新状态和内容控件的位置
+     *
+     * @param yDiff       累计滑动距离，正数为下拉，负数为上拉
+     * @param applyOffset 是否更新内容控件的位置，历史采样点只更新状态
+     */
+    private void pull(float yDiff, boolean applyOffset) {
+        if (mIsBeingDragged) {
+            if (yDiff > mDistanceToTriggerSync) { //如果下拉距离大于临界值则进入松开下拉刷新状态
+                if (mState == STATE_NORMAL) {
+                    changeState(STATE_LOOSEN_REFRESH);
+                }
+            } else if (mState == STATE_LOOSEN_REFRESH) {  //用户手指又往回滑动时恢复默认状态
+                changeState(STATE_NORMAL);
+            }
+        } else if (mIsBeingLoad) {
+            if (-yDiff > mDistanceToTriggerSync) {
+                if (mState == STATE_NORMAL) {
+                    changeState(STATE_LOOSEN_LOAD);
+                }
+            } else if (mState == STATE_LOOSEN_LOAD) {
+                changeState(STATE_NORMAL);
+            }
+        } else {
+            return;
+        }
+        if (!applyOffset) {
+            return;
+        }
+        if (mPredictionTime > 0) {  //只预测显示的位置，不影响状态
+            yDiff += mVelocity * mPredictionTime / 1000f;
+        }
+        mLastTargetTop = computeTargetTop((int) yDiff);
+        mHost.onOffsetChange(mLastTargetTop);  //更新内容控件的位置
+    }
+
+    private void resetVelocity(float y, long eventTime) {
+        mSampleY = y;
+        mSampleTime = eventTime;
+        mVelocity = 0;
+    }
+
+    /**
+     * 用相邻两个采样点的速度做指数平滑
+     */
+    private void trackSample(float y, long eventTime) {
+        final long dt = eventTime - mSampleTime;
+        if (dt <= 0) {
+            return;
+        }
+        final float velocity = (y - mSampleY) * 1000f / dt;
+        mVelocity = mVelocity == 0 ? velocity : mVelocity + (velocity - mVelocity) * VELOCITY_SMOOTHING;
+        mSampleY = y;
+        mSampleTime = eventTime;
+    }
+
+    /**
+     * 超过触发刷新的临界值时取 临界值+超过临界值的一半
+     */
+    int computeTargetTop(int targetTop) {
+        if (mIsBeingDragged) {
+            if (targetTop > mDistanceToTriggerSync) {
+                targetTop = (int) mDistanceToTriggerSync + (int) (targetTop - mDistanceToTriggerSync) / 2;
+            } else if (targetTop < 0) {
+                targetTop = 0;
+            }
+        } else {
+            if (-targetTop > mDistanceToTriggerSync) {
+                targetTop = (int) -mDistanceToTriggerSync + (int) (targetTop + mDistanceToTriggerSync) / 2;
+            } else if (targetTop > 0) {
+                targetTop = 0;
+            }
+        }
+        return targetTop;
+    }
+
+    private void release(float yDiff, float velocity) {
+        if (mState == STATE_NORMAL && isFlingTrigger(yDiff, velocity)) {  //没有达到临界值但松手速度足够快，同样触发
+            changeState(mIsBeingDragged ? STATE_LOOSEN_REFRESH : STATE_LOOSEN_LOAD);
+        }
+        mHost.onRelease(mState, velocity);
+    }
+
+    private boolean isFlingTrigger(float yDiff, float velocity) {
+        if (mFlingTriggerVelocity <= 0) {
+            return false;
+        }
+        final float minDistance = mDistanceToTriggerSync * mFlingTriggerDistanceRatio;
+        if (mIsBeingDragged) {
+            return yDiff >= minDistance && velocity >= mFlingTriggerVelocity;
+        } else if (mIsBeingLoad) {
+            return -yDiff >= minDistance && -velocity >= mFlingTriggerVelocity;
+        }
+        return false;
+    }
+
+    private void changeState(int state) {
+        final int oldState = mState;
+        mState = state;
+        mHost.onStateChange(oldState, state);
+    }
+}
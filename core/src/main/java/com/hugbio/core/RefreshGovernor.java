@@ -0,0 +1,126 @@
+package com.hugbio.core;
+
+/**
+ * 刷新触发的限流：刷新进行中的重复触发合并到当前刷新，距离上一次刷新完成不足最小间隔的触发直接跳过，
+ * 数据还在有效期（TTL）内的触发不需要刷新。
+ * 时间由调用方传入（毫秒，单调递增）。非线程安全，只能在一个线程中使用
+ */
+public final class RefreshGovernor {
+
+    public static final int DECISION_REFRESH = 0;  //开始新的刷新
+    public static final int DECISION_COALESCE = 1;  //已经在刷新，合并到当前刷新
+    public static final int DECISION_SKIP = 2;  //刚刚刷新过，跳过
+    public static final int DECISION_FRESH = 3;  //数据还没有过期，不需要刷新
+
+    private long mMinInterval;
+    private long mTtl;
+    private boolean mInFlight;
+    private boolean mRefreshedOnce;
+    private long mLastFinishTime;
+
+    /**
+     * @param minInterval 上一次刷新完成后至少间隔多久（毫秒）才能再次刷新，小于等于0表示不限制
+     */
+    public void setMinInterval(long minInterval) {
+        mMinInterval = minInterval;
+    }
+
+    public long getMinInterval() {
+        return mMinInterval;
+    }
+
+    /**
+     * @param ttl 数据的有效期（毫秒，从上一次刷新完成开始计算），小于等于0表示不检查（默认）
+     */
+    public void setTtl(long ttl) {
+        mTtl = ttl;
+    }
+
+    public long getTtl() {
+        return mTtl;
+    }
+
+    /**
+     * @return 数据是否已经过期：还没有刷新过，或者超过了有效期。没有设置有效期时总是返回true
+     */
+    public boolean isStale(long now) {
+        return mTtl <= 0 || !mRefreshedOnce || now - mLastFinishTime >= mTtl;
+    }
+
+    /**
+     * 有新的刷新触发
+     *
+     * @return {@link #DECISION_REFRESH}、{@link #DECISION_COALESCE}、{@link #DECISION_SKIP}
+     * 或 {@link #DECISION_FRESH}，返回DECISION_REFRESH时进入刷新中状态
+     */
+    public int onTrigger(long now) {
+        if (mInFlight) {
+            return DECISION_COALESCE;
+        }
+        if (mMinInterval > 0 && mRefreshedOnce && now - mLastFinishTime < mMinInterval) {
+            return DECISION_SKIP;
+        }
+        if (!isStale(now)) {
+            return DECISION_FRESH;
+        }
+        mInFlight = true;
+        return DECISION_REFRESH;
+    }
+
+    /**
+     * 刷新完成，从这个时间开始计算最小间隔
+     */
+    public void onFinish(long now) {
+        if (!mInFlight) {
+            return;
+        }
+        mInFlight = false;
+        mRefreshedOnce = true;
+        mLastFinishTime = now;
+    }
+
+    /**
+     * 数据已经通过其他途径更新（例如首次加载），从这个时间开始计算最小间隔和有效期
+     */
+    public void markRefreshed(long now) {
+        mRefreshedOnce = true;
+        mLastFinishTime = now;
+    }
+
+    /**
+     * 刷新被取消，不算作一次完成的刷新
+     */
+    public void onCancel() {
+        mInFlight = false;
+    }
+
+    public boolean isInFlight() {
+        return mInFlight;
+    }
+
+    /**
+     * @return 上一次刷新完成的时间，还没有完成过刷新时返回-1
+     */
+    public long getLastRefreshTime() {
+        return mRefreshedOnce ? mLastFinishTime : -1;
+    }
+
+    /**
+     * 恢复保存的状态（例如控件重建后）
+     *
+     * @param lastRefreshTime 上一次刷新完成的时间，-1表示没有
+     * @param inFlight        是否有正在进行的刷新
+     */
+    public void restore(long lastRefreshTime, boolean inFlight) {
+        mRefreshedOnce = lastRefreshTime >= 0;
+        mLastFinishTime = mRefreshedOnce ? lastRefreshTime : 0;
+        mInFlight = inFlight;
+    }
+
+    /**
+     * @return 距离上一次刷新完成的时间，还没有完成过刷新时返回-1
+     */
+    public long getTimeSinceLastRefresh(long now) {
+        return mRefreshedOnce ? now - mLastFinishTime : -1;
+    }
+}
@@ -0,0 +1,62 @@
+package com.hugbio.core;
+
+import org.junit.Assume;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * JVM上的分配检查共用：统计当前线程执行一段代码分配的字节数。
+ * 虚拟机不支持按线程统计分配时通过Assume跳过测试。Lib模块的JVM测试也通过core的testOutput使用这个类
+ */
+public final class AllocationMeter {
+
+    /**
+     * 被测量的一步操作，按轮次执行
+     */
+    public interface Step {
+        void run(int i);
+    }
+
+    private final com.sun.management.ThreadMXBean mThreadMXBean;
+    private final long mThreadId;
+
+    private AllocationMeter(com.sun.management.ThreadMXBean threadMXBean, long threadId) {
+        mThreadMXBean = threadMXBean;
+        mThreadId = threadId;
+    }
+
+    /**
+     * @return 统计当前线程的AllocationMeter，不支持时跳过测试
+     */
+    public static AllocationMeter forCurrentThread() {
+        final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        final com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(sunThreadMXBean.isThreadAllocatedMemorySupported());
+        sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+        return new AllocationMeter(sunThreadMXBean, Thread.currentThread().getId());
+    }
+
+    /**
+     * 先执行warmUpRounds轮预热（类加载、JIT、缓存的初始化），再统计rounds轮的分配
+     *
+     * @return rounds轮分配的字节数，已经扣除测量本身的开销
+     */
+    public long measure(int warmUpRounds, int rounds, Step step) {
+        for (int i = 0; i < warmUpRounds; i++) {
+            step.run(i);
+        }
+        // 测量本身的开销
+        long start = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+        long end = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+        final long overhead = end - start;
+
+        start = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+        for (int i = 0; i < rounds; i++) {
+            step.run(i);
+        }
+        end = mThreadMXBean.getThreadAllocatedBytes(mThreadId);
+        return end - start - overhead;
+    }
+}
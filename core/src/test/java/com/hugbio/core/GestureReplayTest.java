@@ -0,0 +1,241 @@
+package com.hugbio.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 把录制的手势（src/test/resources/gestures/*.plgr）回放到PullGesture上，和记录的基准比较：
+ * 位移轨迹、状态切换、回调次数不同，或者每个事件的耗时超过基准的{@link #PERF_TOLERANCE}倍时失败。
+ * <p>
+ * 基准文件中的touchSlop、distanceToTriggerSync可以手动修改，用来评估不同参数在真实手势下的行为。
+ * 运行时指定-Dgesture.baselineDir=src/test/resources/gestures会重新生成基准文件而不是比较
+ */
+public class GestureReplayTest {
+
+    private static final String[] GESTURES = {
+            "pull_refresh",
+            "pull_and_return",
+            "pull_load",
+            "two_finger_pull",
+            "scrolled_content",
+            "tap",
+    };
+    private static final String BASELINE_DIR = System.getProperty("gesture.baselineDir");
+    private static final int WARM_UP_ROUNDS = 2000;
+    private static final int MEASURED_ROUNDS = 2000;
+    private static final int PERF_TOLERANCE = 5;
+    private static final long MIN_NANOS_PER_EVENT = 2000;  //低于这个值不检查，避免机器之间的差异
+
+    /**
+     * 记录回放结果的Host，对应PLSwipeRefreshLayout中头部（PLHeaderView）收到的回调
+     */
+    private static final class ReplayHost implements PullGesture.Host {
+        PullGesture gesture;
+        GestureRecording recording;
+        int event;
+        boolean record = true;
+
+        final StringBuilder offsets = new StringBuilder();
+        final StringBuilder transitions = new StringBuilder();
+        int dragStarts;
+        int offsetChanges;
+        int stateChanges;
+        int backToStarts;
+        int releases;
+
+        @Override
+        public boolean canScrollUp() {
+            return (recording.getFlags(event) & GestureRecording.FLAG_CAN_SCROLL_UP) != 0;
+        }
+
+        @Override
+        public boolean canScrollDown() {
+            return (recording.getFlags(event) & GestureRecording.FLAG_CAN_SCROLL_DOWN) != 0;
+        }
+
+        @Override
+        public void onDragStart(boolean pullDown) {
+            dragStarts++;
+        }
+
+        @Override
+        public void onStateChange(int oldState, int newState) {
+            stateChanges++;
+            if (record) {
+                append(transitions, oldState + ">" + newState);
+            }
+        }
+
+        @Override
+        public void onOffsetChange(int targetTop) {
+            offsetChanges++;
+            if (record) {
+                append(offsets, String.valueOf(targetTop));
+            }
+        }
+
+        @Override
+        public void onBackToStart() {
+            backToStarts++;
+        }
+
+        @Override
+        public void onRelease(int state, float velocity) {
+            releases++;
+            if (record) {
+                append(transitions, "release:" + state);
+            }
+            gesture.setState(PullGesture.STATE_NORMAL);  //回放中刷新（加载）立即完成
+        }
+
+        private static void append(StringBuilder builder, String value) {
+            if (builder.length() > 0) {
+                builder.append(',');
+            }
+            builder.append(value);
+        }
+    }
+
+    @Test
+    public void replayMatchesBaselines() throws IOException {
+        for (String name : GESTURES) {
+            final GestureRecording recording = loadRecording(name);
+            final Properties baseline = loadBaseline(name);
+            final int touchSlop = baseline == null ? recording.getTouchSlop()
+                    : Integer.parseInt(baseline.getProperty("touchSlop"));
+            final float distanceToTriggerSync = baseline == null ? recording.getDistanceToTriggerSync()
+                    : Float.parseFloat(baseline.getProperty("distanceToTriggerSync"));
+
+            final ReplayHost host = new ReplayHost();
+            final PullGesture gesture = newGesture(host, recording, touchSlop, distanceToTriggerSync);
+            replay(gesture, host, recording);
+            final long nanosPerEvent = measureNanosPerEvent(recording, touchSlop, distanceToTriggerSync);
+            System.out.println(name + ": events=" + recording.size() + ", nanosPerEvent=" + nanosPerEvent
+                    + ", offsetChanges=" + host.offsetChanges + ", transitions=" + host.transitions);
+
+            if (BASELINE_DIR != null) {
+                writeBaseline(name, recording, host, nanosPerEvent);
+                continue;
+            }
+            assertNotNull("Missing baseline for " + name, baseline);
+            assertEquals(name + " offsets", baseline.getProperty("offsets"), host.offsets.toString());
+            assertEquals(name + " transitions", baseline.getProperty("transitions"), host.transitions.toString());
+            assertEquals(name + " dragStarts", baseline.getProperty("dragStarts"), String.valueOf(host.dragStarts));
+            assertEquals(name + " offsetChanges", baseline.getProperty("offsetChanges"), String.valueOf(host.offsetChanges));
+            assertEquals(name + " stateChanges", baseline.getProperty("stateChanges"), String.valueOf(host.stateChanges));
+            assertEquals(name + " backToStarts", baseline.getProperty("backToStarts"), String.valueOf(host.backToStarts));
+            assertEquals(name + " releases", baseline.getProperty("releases"), String.valueOf(host.releases));
+            final long budget = Math.max(MIN_NANOS_PER_EVENT,
+                    Long.parseLong(baseline.getProperty("nanosPerEvent")) * PERF_TOLERANCE);
+            assertTrue(name + " took " + nanosPerEvent + "ns per event, budget " + budget + "ns",
+                    nanosPerEvent <= budget);
+        }
+    }
+
+    @Test
+    public void recordingRoundTrips() throws IOException {
+        for (String name : GESTURES) {
+            final GestureRecording recording = loadRecording(name);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            recording.write(out);
+            final GestureRecording copy = GestureRecording.read(new ByteArrayInputStream(out.toByteArray()));
+            assertEquals(recording.size(), copy.size());
+            assertEquals(recording.getTouchSlop(), copy.getTouchSlop());
+
+            final ReplayHost host = new ReplayHost();
+            replay(newGesture(host, recording, recording.getTouchSlop(), recording.getDistanceToTriggerSync()), host, recording);
+            final ReplayHost copyHost = new ReplayHost();
+            replay(newGesture(copyHost, copy, copy.getTouchSlop(), copy.getDistanceToTriggerSync()), copyHost, copy);
+            assertEquals(name, host.offsets.toString(), copyHost.offsets.toString());
+            assertEquals(name, host.transitions.toString(), copyHost.transitions.toString());
+        }
+    }
+
+    private static PullGesture newGesture(ReplayHost host, GestureRecording recording,
+                                          int touchSlop, float distanceToTriggerSync) {
+        final PullGesture gesture = new PullGesture(host);
+        gesture.setTouchSlop(touchSlop);
+        gesture.setDistanceToTriggerSync(distanceToTriggerSync);
+        host.gesture = gesture;
+        host.recording = recording;
+        return gesture;
+    }
+
+    private static void replay(PullGesture gesture, ReplayHost host, GestureRecording recording) {
+        final int size = recording.size();
+        for (int i = 0; i < size; i++) {
+            host.event = i;
+            recording.replay(gesture, i);
+        }
+    }
+
+    private static long measureNanosPerEvent(GestureRecording recording, int touchSlop, float distanceToTriggerSync) {
+        final ReplayHost host = new ReplayHost();
+        host.record = false;
+        final PullGesture gesture = newGesture(host, recording, touchSlop, distanceToTriggerSync);
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            replay(gesture, host, recording);
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            replay(gesture, host, recording);
+        }
+        return (System.nanoTime() - start) / ((long) MEASURED_ROUNDS * recording.size());
+    }
+
+    private static GestureRecording loadRecording(String name) throws IOException {
+        final InputStream in = GestureReplayTest.class.getResourceAsStream("/gestures/" + name + ".plgr");
+        assertNotNull("Missing recording " + name, in);
+        try {
+            return GestureRecording.read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static Properties loadBaseline(String name) throws IOException {
+        final InputStream in = GestureReplayTest.class.getResourceAsStream("/gestures/" + name + ".baseline");
+        if (in == null) {
+            return null;
+        }
+        try {
+            final Properties properties = new Properties();
+            properties.load(in);
+            return properties;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void writeBaseline(String name, GestureRecording recording, ReplayHost host, long nanosPerEvent)
+            throws IOException {
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(new File(BASELINE_DIR, name + ".baseline")), "UTF-8");
+        try {
+            writer.write("touchSlop=" + recording.getTouchSlop() + "\n");
+            writer.write("distanceToTriggerSync=" + recording.getDistanceToTriggerSync() + "\n");
+            writer.write("offsets=" + host.offsets + "\n");
+            writer.write("transitions=" + host.transitions + "\n");
+            writer.write("dragStarts=" + host.dragStarts + "\n");
+            writer.write("offsetChanges=" + host.offsetChanges + "\n");
+            writer.write("stateChanges=" + host.stateChanges + "\n");
+            writer.write("backToStarts=" + host.backToStarts + "\n");
+            writer.write("releases=" + host.releases + "\n");
+            writer.write("nanosPerEvent=" + nanosPerEvent + "\n");
+        } finally {
+            writer.close();
+        }
+    }
+}
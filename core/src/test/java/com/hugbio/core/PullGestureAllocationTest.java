@@ -0,0 +1,118 @@
+package com.hugbio.core;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MOVE事件的处理路径在预热之后不能有任何分配。任何一次分配都会让构建失败
+ */
+public class PullGestureAllocationTest {
+
+    private static final int WARM_UP_ROUNDS = 20000;
+    private static final int MEASURED_ROUNDS = 10000;
+
+    private AllocationMeter mMeter;
+    private CountingHost mHost;
+    private PullGesture mGesture;
+
+    /**
+     * 只做基本类型运算的Host，和PLSwipeRefreshLayout一样在回调中不分配对象
+     */
+    private static final class CountingHost implements PullGesture.Host {
+        PullGesture gesture;
+        long offsetSum;
+        int stateChanges;
+
+        @Override
+        public boolean canScrollUp() {
+            return false;
+        }
+
+        @Override
+        public boolean canScrollDown() {
+            return false;
+        }
+
+        @Override
+        public void onDragStart(boolean pullDown) {
+        }
+
+        @Override
+        public void onStateChange(int oldState, int newState) {
+            stateChanges++;
+        }
+
+        @Override
+        public void onOffsetChange(int targetTop) {
+            offsetSum += targetTop;
+        }
+
+        @Override
+        public void onBackToStart() {
+        }
+
+        @Override
+        public void onRelease(int state, float velocity) {
+            gesture.setState(PullGesture.STATE_NORMAL);
+        }
+    }
+
+    @Before
+    public void setUp() {
+        mMeter = AllocationMeter.forCurrentThread();
+
+        mHost = new CountingHost();
+        mGesture = new PullGesture(mHost);
+        mHost.gesture = mGesture;
+        mGesture.setTouchSlop(16);
+        mGesture.setDistanceToTriggerSync(300);
+        mGesture.setFlingTrigger(2500, .5f);
+    }
+
+    @Test
+    public void touchMoveDoesNotAllocate() {
+        mGesture.onDown(0, 100, 0);
+        final long allocated = mMeter.measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, new AllocationMeter.Step() {
+            @Override
+            public void run(int i) {
+                touchMove(i);
+            }
+        });
+        assertTrue("Gesture never crossed the trigger distance", mHost.stateChanges > 0);
+        assertEquals("Bytes allocated by " + MEASURED_ROUNDS + " MOVE events", 0, allocated);
+    }
+
+    @Test
+    public void nestedScrollDoesNotAllocate() {
+        mGesture.onNestedScrollAccepted();
+        final long allocated = mMeter.measure(WARM_UP_ROUNDS, MEASURED_ROUNDS, new AllocationMeter.Step() {
+            @Override
+            public void run(int i) {
+                nestedScroll(i);
+            }
+        });
+        assertTrue("Nested scroll never pulled", mHost.offsetSum != 0);
+        assertEquals("Bytes allocated by " + MEASURED_ROUNDS + " nested scroll steps", 0, allocated);
+    }
+
+    /**
+     * 在临界值上下来回拖动，覆盖状态切换和阻尼计算
+     */
+    private void touchMove(int i) {
+        final int phase = i % 200;
+        final float y = 100 + (phase < 100 ? phase : 200 - phase) * 8;
+        mGesture.onMove(y, i * 4L);
+    }
+
+    private void nestedScroll(int i) {
+        final int phase = i % 100;
+        if (phase < 50) {
+            mGesture.onNestedScroll(-12);
+        } else {
+            mGesture.onNestedPreScroll(12);
+        }
+    }
+}